@@ -83,13 +83,10 @@ varDecl
     : type name=(ID | MAIN | STRING) SEMI
     ;
 
+// the alternatives that start with the same token are factored, so each one is chosen by its first token
 type locals[boolean isArray=false, boolean isVarArgs=false]
-    : name=INT LBRACK RBRACK {$isArray=true;}
-    | name=INT ELLIPSIS {$isVarArgs=true; $isArray=true;}
-    | name=INT
-    | name=BOOLEAN
-    | name=STRING
-    | name=(ID | MAIN | STRING)
+    : name=INT (LBRACK RBRACK {$isArray=true;} | ELLIPSIS {$isVarArgs=true; $isArray=true;})?
+    | name=(BOOLEAN | ID | MAIN | STRING)
     ;
 
 returnStmt
@@ -0,0 +1,155 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2024.utils.ThreadOutput;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles several files at the same time, one per core.
+ * <p>
+ * The output and reports of each file are kept apart and printed in the order of the files, so the result does not
+ * depend on which compilation finishes first. Each worker thread has its own {@link JmmCompiler}, because the
+ * analysis passes keep the state of the compilation they are running.
+ */
+public class BatchCompiler {
+
+    private static final String EXTENSION = ".jmm";
+
+    private final int parallelism;
+
+    private final ThreadLocal<JmmCompiler> compilers;
+
+    public BatchCompiler(CompileCache cache) {
+        this(Runtime.getRuntime().availableProcessors(), cache);
+    }
+
+    /**
+     * @param cache the cache of the results of the files, or null to compile every file
+     */
+    public BatchCompiler(int parallelism, CompileCache cache) {
+        this.parallelism = parallelism;
+        this.compilers = ThreadLocal.withInitial(() -> new JmmCompiler(cache));
+    }
+
+    /**
+     * The output of the compilation of a file and the reports of the stages it went through.
+     */
+    public record FileResult(File file, String output, List<Report> reports, String error) {
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    /**
+     * Expands the paths of the batch, separated by the path separator of the system, into the .jmm files they name.
+     * Directories are searched recursively and their files are sorted by path.
+     */
+    public static List<File> getFiles(String paths) {
+        List<File> files = new ArrayList<>();
+
+        for (var path : paths.split(File.pathSeparator)) {
+            var file = new File(path);
+            if (!file.isDirectory()) {
+                files.add(file);
+                continue;
+            }
+
+            try (Stream<Path> walk = Files.walk(file.toPath())) {
+                walk.filter(Files::isRegularFile)
+                        .filter(child -> child.toString().endsWith(EXTENSION))
+                        .sorted()
+                        .map(Path::toFile)
+                        .forEach(files::add);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        return files;
+    }
+
+    /**
+     * Compiles the files with the options of the given configuration and prints their results in order.
+     *
+     * @return true if every file compiled without errors
+     */
+    public boolean compile(List<File> files, Map<String, String> config, PrintStream out) {
+        ThreadOutput.install();
+
+        var pool = new ForkJoinPool(parallelism);
+        var failed = 0;
+        try {
+            List<Future<FileResult>> futures = files.stream()
+                    .map(file -> pool.submit(() -> compile(file, config)))
+                    .collect(Collectors.toList());
+
+            // the results are printed as soon as the files before them are done
+            for (var future : futures) {
+                var result = future.get();
+                print(result, out);
+                if (!result.isSuccess()) {
+                    failed++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Batch compilation was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        out.println("Compiled " + files.size() + " files, " + failed + " failed");
+        return failed == 0;
+    }
+
+    private FileResult compile(File file, Map<String, String> config) {
+        var fileConfig = new HashMap<>(config);
+        fileConfig.put(CompilerConfig.INPUT_FILE, file.getAbsolutePath());
+
+        var output = new ByteArrayOutputStream();
+        List<Report> reports = new ArrayList<>();
+        String error = null;
+        try {
+            ThreadOutput.capture(output, () -> compilers.get().compile(fileConfig, reports));
+        } catch (RuntimeException | StackOverflowError e) {
+            // a file nested too deeply for the recursive passes only fails on its own
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+
+        return new FileResult(file, output.toString(StandardCharsets.UTF_8), reports, error);
+    }
+
+    static void print(FileResult result, PrintStream out) {
+        out.println("=== " + result.file() + " ===");
+        out.print(result.output());
+
+        for (var report : result.reports()) {
+            if (report.getType() == ReportType.ERROR || report.getType() == ReportType.WARNING) {
+                out.println(report);
+            }
+        }
+
+        out.println(result.isSuccess() ? "OK " + result.file() : "FAILED " + result.file() + ": " + result.error());
+    }
+}
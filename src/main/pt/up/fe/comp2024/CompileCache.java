@@ -0,0 +1,301 @@
+package pt.up.fe.comp2024;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of the results of compiling a file, addressed by the contents of the compilation.
+ * <p>
+ * The key is the hash of the source code, the options that change the result and the build of the compiler itself, so
+ * an entry never has to be invalidated because of those. Each entry also has a manifest with the hash of each class
+ * the file imports, as found next to the file, and a hit whose imports changed since is treated as a miss. The entries
+ * not used for the longest time are removed when the cache grows above its size.
+ */
+public class CompileCache {
+
+    public static final String DEFAULT_DIR = ".jmm-cache";
+
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private static final String OUTPUT_FILE = "output.txt";
+    private static final String OLLIR_FILE = "code.ollir";
+    private static final String JASMIN_FILE = "code.j";
+    private static final String REPORTS_FILE = "reports.json";
+    private static final String MANIFEST_FILE = "manifest.json";
+    private static final String CLASS_NAME_FILE = "class.txt";
+
+    private static final String ABSENT = "absent";
+
+    private static final Gson GSON = new Gson();
+
+    private static String compilerVersion;
+
+    private final Path dir;
+
+    private final long maxBytes;
+
+    public CompileCache(File dir, long maxBytes) {
+        this.dir = dir.toPath();
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The results of a compilation, with the output it printed.
+     */
+    public record Entry(String className, String output, String ollirCode, String jasminCode, List<Report> reports) {
+    }
+
+    private record ReportData(ReportType type, Stage stage, int line, int column, String message) {
+    }
+
+    public String getKey(String code, Map<String, String> config) {
+        var key = String.join("\0", getCompilerVersion(),
+                String.valueOf(CompilerConfig.getOptimize(config)),
+                String.valueOf(CompilerConfig.getRegisterAllocation(config)),
+                code);
+
+        return hash(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the entry of the key, if it exists and the classes it imports did not change
+     */
+    public Optional<Entry> lookup(String key, Map<String, String> config) {
+        var entryDir = dir.resolve(key);
+        if (!Files.isDirectory(entryDir)) {
+            return Optional.empty();
+        }
+
+        try {
+            Map<String, String> manifest = GSON.fromJson(Files.readString(entryDir.resolve(MANIFEST_FILE)),
+                    new TypeToken<Map<String, String>>() {
+                    }.getType());
+            var sourceDir = getSourceDir(config);
+            for (var dependency : manifest.entrySet()) {
+                if (!getDependencyHash(sourceDir, dependency.getKey()).equals(dependency.getValue())) {
+                    return Optional.empty();
+                }
+            }
+
+            List<ReportData> reportData = GSON.fromJson(Files.readString(entryDir.resolve(REPORTS_FILE)),
+                    new TypeToken<List<ReportData>>() {
+                    }.getType());
+            var reports = reportData.stream()
+                    .map(report -> new Report(report.type(), report.stage(), report.line(), report.column(),
+                            report.message()))
+                    .collect(Collectors.toList());
+
+            var entry = new Entry(
+                    Files.readString(entryDir.resolve(CLASS_NAME_FILE)),
+                    Files.readString(entryDir.resolve(OUTPUT_FILE)),
+                    Files.readString(entryDir.resolve(OLLIR_FILE)),
+                    Files.readString(entryDir.resolve(JASMIN_FILE)),
+                    reports);
+
+            // the modification time of the entry is when it was last used
+            Files.setLastModifiedTime(entryDir, FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.of(entry);
+        } catch (IOException | RuntimeException e) {
+            // an entry being evicted or written by another process is a miss
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores the entry of a key, along with the hash of each of the imported classes, and evicts the entries not used
+     * for the longest time if the cache became too big.
+     */
+    public void store(String key, Map<String, String> config, List<String> imports, Entry entry) {
+        var sourceDir = getSourceDir(config);
+        Map<String, String> manifest = new LinkedHashMap<>();
+        for (var imported : imports) {
+            manifest.put(imported, getDependencyHash(sourceDir, imported));
+        }
+
+        var reports = entry.reports().stream()
+                .map(report -> new ReportData(report.getType(), report.getStage(), report.getLine(),
+                        report.getColumn(), report.getMessage()))
+                .collect(Collectors.toList());
+
+        try {
+            Files.createDirectories(dir);
+
+            // the entry is written aside and moved into place, so no one ever reads half of it
+            var tempDir = Files.createTempDirectory(dir, key + ".tmp");
+            Files.writeString(tempDir.resolve(CLASS_NAME_FILE), entry.className());
+            Files.writeString(tempDir.resolve(OUTPUT_FILE), entry.output());
+            Files.writeString(tempDir.resolve(OLLIR_FILE), entry.ollirCode());
+            Files.writeString(tempDir.resolve(JASMIN_FILE), entry.jasminCode());
+            Files.writeString(tempDir.resolve(REPORTS_FILE), GSON.toJson(reports));
+            Files.writeString(tempDir.resolve(MANIFEST_FILE), GSON.toJson(manifest));
+
+            // an entry whose imports changed is replaced
+            var entryDir = dir.resolve(key);
+            deleteRecursively(entryDir);
+
+            try {
+                Files.move(tempDir, entryDir, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // fine if another compilation of the same file got there first
+                deleteRecursively(tempDir);
+                if (!Files.isDirectory(entryDir)) {
+                    throw e;
+                }
+            }
+
+            evict();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized void evict() throws IOException {
+        List<Path> entries;
+        try (Stream<Path> children = Files.list(dir)) {
+            entries = children.filter(Files::isDirectory)
+                    .filter(child -> !child.getFileName().toString().contains(".tmp"))
+                    .collect(Collectors.toList());
+        }
+
+        Map<Path, Long> sizes = new LinkedHashMap<>();
+        long total = 0;
+        for (var entry : entries) {
+            var size = getSize(entry);
+            sizes.put(entry, size);
+            total += size;
+        }
+
+        if (total <= maxBytes) {
+            return;
+        }
+
+        entries.sort(Comparator.comparing(CompileCache::getLastUse));
+        for (var entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+
+            deleteRecursively(entry);
+            total -= sizes.get(entry);
+        }
+    }
+
+    private static Path getSourceDir(Map<String, String> config) {
+        var parent = CompilerConfig.getInputFile(config).orElseThrow().getAbsoluteFile().getParentFile();
+        return parent.toPath();
+    }
+
+    /**
+     * Hashes the source or class file of an imported class, looked up from the directory of the file being compiled.
+     */
+    private static String getDependencyHash(Path sourceDir, String imported) {
+        var relativePath = imported.replace('.', File.separatorChar);
+
+        for (var extension : List.of(".jmm", ".class")) {
+            var file = sourceDir.resolve(relativePath + extension);
+            if (Files.isRegularFile(file)) {
+                try {
+                    return hash(Files.readAllBytes(file));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        return ABSENT;
+    }
+
+    /**
+     * Identifies the build of the compiler by hashing the jar or the directory of classes it is running from, so the
+     * entries of older builds are never used.
+     */
+    private static synchronized String getCompilerVersion() {
+        if (compilerVersion != null) {
+            return compilerVersion;
+        }
+
+        try {
+            var location = Path.of(CompileCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+            List<Path> files;
+            if (Files.isDirectory(location)) {
+                try (Stream<Path> walk = Files.walk(location)) {
+                    files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+                }
+            } else {
+                files = List.of(location);
+            }
+
+            var digest = getDigest();
+            for (var file : files) {
+                digest.update(location.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update(Files.readAllBytes(file));
+            }
+            compilerVersion = HexFormat.of().formatHex(digest.digest());
+        } catch (Exception e) {
+            throw new RuntimeException("Could not identify the build of the compiler", e);
+        }
+
+        return compilerVersion;
+    }
+
+    private static String hash(byte[] bytes) {
+        return HexFormat.of().formatHex(getDigest().digest(bytes));
+    }
+
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static long getSize(Path entry) throws IOException {
+        try (Stream<Path> walk = Files.walk(entry)) {
+            return walk.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static FileTime getLastUse(Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        try (Stream<Path> walk = Files.walk(path)) {
+            for (var file : walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package pt.up.fe.comp2024;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sends a compile request to a {@link CompilerDaemon} and prints its output.
+ */
+public class CompilerClient {
+
+    private final int port;
+
+    public CompilerClient(int port) {
+        this.port = port;
+    }
+
+    /**
+     * @return the exit code of the compilation
+     */
+    public int compile(String[] args) throws IOException {
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            var out = new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+            for (var arg : args) {
+                if (CompilerConfig.isForwarded(arg)) {
+                    out.println(toDaemonArg(arg));
+                }
+            }
+            out.println();
+
+            var in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            for (var line = in.readLine(); line != null; line = in.readLine()) {
+                if (line.startsWith(CompilerDaemon.END_OF_RESPONSE)) {
+                    return Integer.parseInt(line.substring(CompilerDaemon.END_OF_RESPONSE.length()));
+                }
+                System.out.println(line);
+            }
+        }
+
+        throw new IOException("Connection to the compiler daemon closed before the end of the response");
+    }
+
+    /**
+     * The daemon may be running in another directory, so the input file is sent as an absolute path.
+     */
+    private static String toDaemonArg(String arg) {
+        if (!arg.startsWith("-i=")) {
+            return arg;
+        }
+
+        return "-i=" + new File(arg.substring(3)).getAbsolutePath();
+    }
+}
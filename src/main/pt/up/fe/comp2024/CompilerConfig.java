@@ -7,9 +7,19 @@ import java.util.Optional;
 
 public class CompilerConfig {
 
-    private static final String INPUT_FILE = "inputFile";
+    static final String INPUT_FILE = "inputFile";
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
+    private static final String DAEMON = "daemon";
+    private static final String CLIENT = "client";
+    private static final String BATCH = "batch";
+    private static final String PIPELINE = "pipeline";
+    private static final String STATS = "stats";
+    private static final String CACHE = "cache";
+    private static final String WRITE_AST = "writeAst";
+    static final String INCREMENTAL = "incremental";
+    private static final String WATCH = "watch";
+    private static final String PARSER_PROFILE = "parserProfile";
 
 
     static Map<String, String> shortToLong = new HashMap<>();
@@ -18,6 +28,16 @@ public class CompilerConfig {
         shortToLong.put("i", CompilerConfig.INPUT_FILE);
         shortToLong.put("o", CompilerConfig.OPTIMIZE);
         shortToLong.put("r", CompilerConfig.REGISTER);
+        shortToLong.put("d", CompilerConfig.DAEMON);
+        shortToLong.put("c", CompilerConfig.CLIENT);
+        shortToLong.put("b", CompilerConfig.BATCH);
+        shortToLong.put("p", CompilerConfig.PIPELINE);
+        shortToLong.put("s", CompilerConfig.STATS);
+        shortToLong.put("k", CompilerConfig.CACHE);
+        shortToLong.put("a", CompilerConfig.WRITE_AST);
+        shortToLong.put("n", CompilerConfig.INCREMENTAL);
+        shortToLong.put("w", CompilerConfig.WATCH);
+        shortToLong.put("f", CompilerConfig.PARSER_PROFILE);
     }
 
 
@@ -40,6 +60,105 @@ public class CompilerConfig {
         return Integer.parseInt(config.getOrDefault(REGISTER, "-1"));
     }
 
+    /**
+     * @return the files and directories to compile together, separated by the path separator of the system
+     */
+    public static Optional<String> getBatch(Map<String, String> config) {
+        return Optional.ofNullable(config.get(BATCH));
+    }
+
+    /**
+     * @return the number of threads of each stage, if the batch should be compiled with the stages pipelined
+     */
+    public static Optional<int[]> getPipeline(Map<String, String> config) {
+        var value = config.get(PIPELINE);
+        return value == null ? Optional.empty() : Optional.of(PipelinedCompiler.parseStageThreads(value));
+    }
+
+    /**
+     * @return the directory of the compilation cache, if the results should be cached
+     */
+    public static Optional<File> getCacheDir(Map<String, String> config) {
+        var value = config.get(CACHE);
+        if (value == null) {
+            return Optional.empty();
+        }
+
+        // a flag without a value uses the default directory
+        return Optional.of(new File(value.equals("true") ? CompileCache.DEFAULT_DIR : value));
+    }
+
+    /**
+     * @return true if the AST of the input file should be written next to it, in the binary format of AstWriter
+     */
+    public static boolean getWriteAst(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(WRITE_AST, "false"));
+    }
+
+    /**
+     * @return true if only the methods that changed since the last compilation of the input file should be compiled
+     */
+    public static boolean getIncremental(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(INCREMENTAL, "false"));
+    }
+
+    /**
+     * @return true if the input file, or the files of the batch, should be compiled again every time they change
+     */
+    public static boolean getWatch(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(WATCH, "false"));
+    }
+
+    /**
+     * @return true if the parser should print how it predicted each decision of the grammar
+     */
+    public static boolean getParserProfile(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(PARSER_PROFILE, "false"));
+    }
+
+    /**
+     * @return true if the request to the daemon asks for its metrics instead of a compilation
+     */
+    public static boolean getStats(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(STATS, "false"));
+    }
+
+    /**
+     * @return the port of the daemon to start, if the compiler should run as a daemon
+     */
+    public static Optional<Integer> getDaemonPort(Map<String, String> config) {
+        return getPort(config.get(DAEMON));
+    }
+
+    /**
+     * @return the port of the daemon to send the compilation to, if there is one
+     */
+    public static Optional<Integer> getClientPort(Map<String, String> config) {
+        return getPort(config.get(CLIENT));
+    }
+
+    private static Optional<Integer> getPort(String value) {
+        if (value == null) {
+            return Optional.empty();
+        }
+
+        // a flag without a value uses the default port
+        if (value.equals("true")) {
+            return Optional.of(CompilerDaemon.DEFAULT_PORT);
+        }
+
+        return Optional.of(Integer.parseInt(value));
+    }
+
+    /**
+     * Checks if an option is sent to the daemon, which is the case for all but the ones that choose how to run the
+     * compiler.
+     */
+    public static boolean isForwarded(String arg) {
+        var longOption = getLongOpt(arg.substring(1, 2));
+        return !longOption.equals(DAEMON) && !longOption.equals(CLIENT);
+    }
+
 
     public static Map<String, String> getDefault() {
 
@@ -89,6 +208,12 @@ public class CompilerConfig {
             config.put(getLongOpt(shortOption), value);
         }
 
+        // the daemon receives its input files with each request, a batch has its own list of files and the metrics of
+        // the daemon do not need any
+        if (getDaemonPort(config).isPresent() || getBatch(config).isPresent() || getStats(config)) {
+            return config;
+        }
+
         if (!config.containsKey(INPUT_FILE)) {
 
             throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>'");
@@ -106,6 +231,8 @@ public class CompilerConfig {
         // Verify if values are valid
         getOptimize(config);
         getRegisterAllocation(config);
+        getClientPort(config);
+        getPipeline(config);
 
         return config;
     }
@@ -0,0 +1,175 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp2024.utils.ThreadOutput;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Long-running compiler that accepts compile requests on a loopback socket.
+ * <p>
+ * A request is the list of command line options, one per line, ended by an empty line. The output of the compilation
+ * is sent back followed by a line with {@link #END_OF_RESPONSE} and the exit code. A request with {@code -s} gets the
+ * {@link DaemonMetrics} of the daemon instead.
+ * <p>
+ * Each request is handled on its own thread, which does the blocking parts: reading the request and the source file
+ * and writing the response. The compilation itself runs on a pool with one thread per core, and each of those threads
+ * keeps a warm {@link JmmCompiler}. The compilers share an {@link IncrementalCache}, so a request with {@code -n} only
+ * compiles the methods that changed since the file was last compiled by any of them.
+ */
+public class CompilerDaemon {
+
+    public static final int DEFAULT_PORT = 7447;
+
+    public static final String END_OF_RESPONSE = "\u0001";
+
+    private final int port;
+    private final ExecutorService requestThreads;
+    private final ExecutorService compileThreads;
+    private final IncrementalCache incremental;
+    private final ThreadLocal<JmmCompiler> compilers;
+    private final DaemonMetrics metrics;
+    private volatile ServerSocket server;
+
+    public CompilerDaemon(int port) {
+        this.port = port;
+        this.requestThreads = newRequestExecutor();
+        this.compileThreads = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        this.incremental = new IncrementalCache();
+        this.compilers = ThreadLocal.withInitial(() -> new JmmCompiler(null, incremental));
+        this.metrics = new DaemonMetrics();
+    }
+
+    /**
+     * Uses a virtual thread per request when the running JVM has them, and a cached pool of platform threads
+     * otherwise. The compiler targets Java 17, so the virtual threads can only be found by reflection.
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public void run() throws IOException {
+        ThreadOutput.install();
+
+        try (var server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            this.server = server;
+            System.out.println("Compiler daemon listening on " + server.getLocalSocketAddress());
+
+            while (true) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketException e) {
+                    // closed by stop
+                    if (server.isClosed()) {
+                        return;
+                    }
+                    throw e;
+                }
+
+                requestThreads.execute(() -> handle(socket));
+            }
+        } finally {
+            requestThreads.shutdownNow();
+            compileThreads.shutdownNow();
+        }
+    }
+
+    /**
+     * Stops accepting requests, which makes {@link #run} return.
+     */
+    public void stop() throws IOException {
+        var server = this.server;
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private void handle(Socket socket) {
+        var start = System.nanoTime();
+        metrics.requestStarted();
+
+        var exitCode = 1;
+        try (socket) {
+            var in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+            List<String> args = new ArrayList<>();
+            for (var line = in.readLine(); line != null && !line.isEmpty(); line = in.readLine()) {
+                args.add(line);
+            }
+
+            var out = new PrintStream(socket.getOutputStream(), false, StandardCharsets.UTF_8);
+            exitCode = compile(args.toArray(new String[0]), out, start);
+            out.println(END_OF_RESPONSE + exitCode);
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Could not handle request: " + e.getMessage());
+        } finally {
+            metrics.requestFinished(System.nanoTime() - start, exitCode == 0);
+        }
+    }
+
+    /**
+     * Compiles on one of the compiling threads and writes the output to the given stream.
+     *
+     * @return the exit code of the compilation
+     */
+    private int compile(String[] args, PrintStream out, long start) {
+        try {
+            Map<String, String> config = CompilerConfig.parseArgs(args);
+
+            if (CompilerConfig.getStats(config)) {
+                metrics.toLines().forEach(out::println);
+                return 0;
+            }
+
+            // a binary AST is read by the compiler itself, since it is not source code
+            var code = JmmCompiler.isAstInput(config) ? null : JmmCompiler.readInput(config);
+
+            // the output is kept until the compilation ends, so a slow client does not hold a compiling thread
+            var output = new ByteArrayOutputStream();
+            var compilation = compileThreads.submit(() -> {
+                metrics.requestQueued(System.nanoTime() - start);
+                return ThreadOutput.capture(output, () -> code == null
+                        ? compilers.get().compile(config, new ArrayList<>())
+                        : compilers.get().compile(code, config, new ArrayList<>()));
+            });
+
+            try {
+                compilation.get();
+                return 0;
+            } finally {
+                out.writeBytes(output.toByteArray());
+            }
+        } catch (ExecutionException e) {
+            out.println(e.getCause().getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            out.println("Compilation was interrupted");
+            return 1;
+        } catch (RuntimeException e) {
+            out.println(e.getMessage());
+            return 1;
+        }
+    }
+}
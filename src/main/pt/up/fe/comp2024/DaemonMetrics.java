@@ -0,0 +1,66 @@
+package pt.up.fe.comp2024;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency of the requests of a {@link CompilerDaemon}.
+ * <p>
+ * The queueing time goes from receiving the request to a compiling thread picking it up, and the latency from
+ * receiving the request to sending the last line of the response.
+ */
+public class DaemonMetrics {
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong totalQueueNanos = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final LongAccumulator maxQueueNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+
+    public void requestStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    public void requestQueued(long queueNanos) {
+        totalQueueNanos.addAndGet(queueNanos);
+        maxQueueNanos.accumulate(queueNanos);
+    }
+
+    public void requestFinished(long latencyNanos, boolean success) {
+        inFlight.decrementAndGet();
+        requests.increment();
+        if (!success) {
+            failures.increment();
+        }
+
+        totalLatencyNanos.addAndGet(latencyNanos);
+        maxLatencyNanos.accumulate(latencyNanos);
+    }
+
+    /**
+     * @return one line per metric, with the times in milliseconds
+     */
+    public List<String> toLines() {
+        var count = requests.sum();
+
+        List<String> lines = new ArrayList<>();
+        lines.add("requests: " + count);
+        lines.add("failed: " + failures.sum());
+        lines.add("in flight: " + inFlight.get());
+        lines.add("mean queue time: " + toMillis(count == 0 ? 0 : totalQueueNanos.get() / count));
+        lines.add("max queue time: " + toMillis(maxQueueNanos.get()));
+        lines.add("mean latency: " + toMillis(count == 0 ? 0 : totalLatencyNanos.get() / count));
+        lines.add("max latency: " + toMillis(maxLatencyNanos.get()));
+        return lines;
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.3fms", nanos / 1e6);
+    }
+}
@@ -0,0 +1,210 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2024.utils.ThreadOutput;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles files again every time they are saved.
+ * <p>
+ * The files are compiled once at the start and then every time they change, always by the same {@link JmmCompiler},
+ * so each compilation only goes through the methods that changed since the last one. Editors often write a file more
+ * than once when saving it, so the events are gathered until there are none for {@link #DEBOUNCE_MILLIS} and each
+ * changed file is compiled once. Only the reports and the time of each compilation are printed.
+ */
+public class FileWatcher {
+
+    public static final long DEBOUNCE_MILLIS = 50;
+
+    private static final String EXTENSION = ".jmm";
+
+    private final List<Path> roots;
+    private final JmmCompiler compiler;
+    private final PrintStream out;
+
+    /**
+     * @param roots the files and directories to watch, directories are watched recursively
+     * @param cache the cache of the results of the files, or null to compile every file
+     */
+    public FileWatcher(List<File> roots, CompileCache cache, PrintStream out) {
+        this.roots = roots.stream().map(root -> root.getAbsoluteFile().toPath()).collect(Collectors.toList());
+        this.compiler = new JmmCompiler(cache, new IncrementalCache());
+        this.out = out;
+    }
+
+    /**
+     * @return the files and directories to watch, which are the batch or else the input file
+     */
+    public static List<File> getRoots(Map<String, String> config) {
+        var batch = CompilerConfig.getBatch(config);
+        if (batch.isPresent()) {
+            return Arrays.stream(batch.get().split(File.pathSeparator)).map(File::new).collect(Collectors.toList());
+        }
+
+        return List.of(CompilerConfig.getInputFile(config).orElseThrow());
+    }
+
+    public void run(Map<String, String> config) throws IOException {
+        ThreadOutput.install();
+
+        try (var watchService = FileSystems.getDefault().newWatchService()) {
+            Map<WatchKey, Path> dirs = new HashMap<>();
+            for (var root : roots) {
+                if (Files.isDirectory(root)) {
+                    registerAll(watchService, root, dirs);
+                } else {
+                    // the events of a file come from its directory, whose subdirectories are of no interest
+                    register(watchService, root.getParent(), dirs);
+                }
+            }
+
+            Set<Path> files = new TreeSet<>();
+            for (var root : roots) {
+                files.addAll(getFiles(root));
+            }
+            files.forEach(file -> compile(file, config));
+
+            out.println("Watching " + roots.stream().map(Path::toString).collect(Collectors.joining(", ")));
+
+            while (true) {
+                Set<Path> changed = new TreeSet<>();
+                var key = watchService.take();
+
+                // the rest of the burst of events of a save
+                while (key != null) {
+                    collect(key, watchService, dirs, changed);
+                    key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+
+                changed.stream()
+                        .filter(Files::isRegularFile)
+                        .forEach(file -> compile(file, config));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void collect(WatchKey key, WatchService watchService, Map<WatchKey, Path> dirs, Set<Path> changed)
+            throws IOException {
+        var dir = dirs.get(key);
+
+        for (var event : key.pollEvents()) {
+            // some events were lost, so every file may have changed
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                for (var root : roots) {
+                    changed.addAll(getFiles(root));
+                }
+                continue;
+            }
+
+            var path = dir.resolve((Path) event.context());
+
+            // a new directory inside a watched directory is watched as well
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path) && isWatched(path)) {
+                registerAll(watchService, path, dirs);
+                changed.addAll(getFiles(path));
+                continue;
+            }
+
+            if (path.toString().endsWith(EXTENSION) && isWatched(path)) {
+                changed.add(path);
+            }
+        }
+
+        if (!key.reset()) {
+            dirs.remove(key);
+        }
+    }
+
+    private boolean isWatched(Path path) {
+        return roots.stream().anyMatch(root -> Files.isDirectory(root) ? path.startsWith(root) : path.equals(root));
+    }
+
+    /**
+     * Watches the directory and every directory inside it.
+     */
+    private static void registerAll(WatchService watchService, Path dir, Map<WatchKey, Path> dirs)
+            throws IOException {
+        List<Path> subdirs;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            subdirs = walk.filter(Files::isDirectory).collect(Collectors.toList());
+        }
+
+        for (var subdir : subdirs) {
+            register(watchService, subdir, dirs);
+        }
+    }
+
+    private static void register(WatchService watchService, Path dir, Map<WatchKey, Path> dirs) throws IOException {
+        var key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        dirs.put(key, dir);
+    }
+
+    private static List<Path> getFiles(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return List.of(root);
+        }
+
+        try (Stream<Path> walk = Files.walk(root)) {
+            return walk.filter(Files::isRegularFile)
+                    .filter(file -> file.toString().endsWith(EXTENSION))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private void compile(Path file, Map<String, String> config) {
+        var fileConfig = new HashMap<>(config);
+        fileConfig.put(CompilerConfig.INPUT_FILE, file.toString());
+        fileConfig.put(CompilerConfig.INCREMENTAL, "true");
+
+        var start = System.nanoTime();
+        List<Report> reports = new ArrayList<>();
+        String error = null;
+        try {
+            // the intermediate results of the stages are not printed
+            ThreadOutput.capture(OutputStream.nullOutputStream(), () -> compiler.compile(fileConfig, reports));
+        } catch (RuntimeException | StackOverflowError e) {
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+        var millis = (System.nanoTime() - start) / 1_000_000;
+
+        var printed = false;
+        for (var report : reports) {
+            if (report.getType() == ReportType.ERROR || report.getType() == ReportType.WARNING) {
+                out.println(report);
+                printed = true;
+            }
+        }
+
+        if (error == null) {
+            out.println("OK " + file + " in " + millis + "ms");
+        } else {
+            // the error of a failed stage repeats its reports
+            out.println("FAILED " + file + " in " + millis + "ms" + (printed ? "" : ": " + error));
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static pt.up.fe.comp2024.ast.Kind.*;
+
+/**
+ * Keeps the code of each method of the classes compiled before, so only the methods that changed since the last
+ * compilation of a class are analysed and generated again.
+ * <p>
+ * Each method has a fingerprint of its subtree of the AST, without the positions of the nodes, so editing a method
+ * leaves the fingerprints of the others unchanged. A method is compiled again if its fingerprint changed or if it calls
+ * a method whose signature changed. The whole class is compiled again when anything outside its methods changed: the
+ * imports, the fields or the declaration of the class.
+ */
+public class IncrementalCache {
+
+    private static final Set<String> POSITIONS = Arrays.stream(NodePosition.values())
+            .map(NodePosition::getString)
+            .collect(Collectors.toSet());
+
+    private final Map<File, Snapshot> snapshots;
+
+    public IncrementalCache() {
+        this.snapshots = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * The fingerprints of a class, taken from the AST as it comes out of the parser.
+     *
+     * @param header     the fingerprint of everything in the class but its methods
+     * @param signatures the fingerprint of the modifiers, return type and parameters of each method
+     * @param methods    the fingerprint of the whole declaration of each method
+     */
+    public record Fingerprints(String header, Map<String, String> signatures, Map<String, String> methods) {
+    }
+
+    /**
+     * The last compilation of a class, with its code and AST as parsed, to parse the next version of the class from,
+     * and the OLLIR and Jasmin code of each of its methods.
+     */
+    public record Snapshot(int registerAllocation, String code, JmmNode ast, Fingerprints fingerprints,
+                           Map<String, String> ollirMethods, Map<String, String> jasminMethods) {
+    }
+
+    public Optional<Snapshot> get(File file) {
+        return Optional.ofNullable(snapshots.get(file.getAbsoluteFile()));
+    }
+
+    public void put(File file, Snapshot snapshot) {
+        snapshots.put(file.getAbsoluteFile(), snapshot);
+    }
+
+    /**
+     * Must be called before the analysis, which adds attributes to the AST.
+     *
+     * @return the fingerprints of the class, or empty if it has more than one method with the same name
+     */
+    public static Optional<Fingerprints> fingerprint(JmmNode root) {
+        Map<String, String> signatures = new LinkedHashMap<>();
+        Map<String, String> methods = new LinkedHashMap<>();
+
+        for (var method : root.getDescendants(METHOD_DECL)) {
+            var name = method.get("name");
+            if (methods.containsKey(name)) {
+                return Optional.empty();
+            }
+
+            var signature = new StringBuilder();
+            appendAttributes(method, signature);
+            for (var child : method.getChildren()) {
+                if (TYPE.check(child) || PARAM.check(child)) {
+                    append(child, signature, false);
+                }
+            }
+
+            var declaration = new StringBuilder();
+            append(method, declaration, false);
+
+            signatures.put(name, hash(signature));
+            methods.put(name, hash(declaration));
+        }
+
+        var header = new StringBuilder();
+        append(root, header, true);
+
+        return Optional.of(new Fingerprints(hash(header), signatures, methods));
+    }
+
+    /**
+     * @return the names of the methods that have to be compiled again, or empty if the whole class has to
+     */
+    public static Optional<Set<String>> getChangedMethods(Snapshot previous, Fingerprints current, JmmNode root) {
+        if (!previous.fingerprints().header().equals(current.header())) {
+            return Optional.empty();
+        }
+
+        var previousSignatures = previous.fingerprints().signatures();
+
+        // the methods added, removed or with another signature
+        Set<String> changedSignatures = new HashSet<>(previousSignatures.keySet());
+        changedSignatures.addAll(current.signatures().keySet());
+        changedSignatures.removeIf(name ->
+                current.signatures().getOrDefault(name, "").equals(previousSignatures.get(name)));
+
+        Set<String> changed = new HashSet<>();
+        for (var method : root.getDescendants(METHOD_DECL)) {
+            var name = method.get("name");
+
+            var sameDeclaration = current.methods().get(name)
+                    .equals(previous.fingerprints().methods().get(name));
+            var callsChanged = method.getDescendants(METHOD_CALL_EXPR).stream()
+                    .anyMatch(call -> changedSignatures.contains(call.get("name")));
+
+            if (!sameDeclaration || callsChanged) {
+                changed.add(name);
+            }
+        }
+
+        return Optional.of(changed);
+    }
+
+    private static void append(JmmNode node, StringBuilder out, boolean skipMethods) {
+        out.append('(').append(node.getKind());
+        appendAttributes(node, out);
+
+        for (var child : node.getChildren()) {
+            if (skipMethods && METHOD_DECL.check(child)) {
+                continue;
+            }
+
+            append(child, out, skipMethods);
+        }
+
+        out.append(')');
+    }
+
+    private static void appendAttributes(JmmNode node, StringBuilder out) {
+        node.getAttributes().stream()
+                .filter(attribute -> !POSITIONS.contains(attribute))
+                .sorted()
+                .forEach(attribute -> out.append(' ').append(attribute).append('=')
+                        .append(node.getObject(attribute)));
+    }
+
+    private static String hash(CharSequence text) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2024.ast.AstReader;
+import pt.up.fe.comp2024.ast.AstWriter;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.backend.JasminBackendImpl;
+import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2024.parser.JmmParserImpl;
+import pt.up.fe.comp2024.utils.ThreadOutput;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static pt.up.fe.comp2024.ast.Kind.METHOD_DECL;
+
+/**
+ * Runs the whole pipeline on the input file of a configuration.
+ * <p>
+ * The stages are created once and reused by every compilation, so a long-running process only pays for loading the
+ * parser and warming up the compiler on its first compilation. With a {@link CompileCache}, a file compiled before
+ * is not parsed again and gets the output and reports of its previous compilation. With an {@link IncrementalCache}, a
+ * file compiled before only has the methods that changed since analysed and generated again.
+ */
+public class JmmCompiler {
+
+    private final JmmParserImpl parser;
+    private final JmmAnalysisImpl sema;
+    private final JmmOptimizationImpl ollirGen;
+    private final JasminBackendImpl jasminGen;
+
+    // null when the results are not cached
+    private final CompileCache cache;
+
+    // null when the methods of the previous compilations are not kept
+    private final IncrementalCache incremental;
+
+    public JmmCompiler() {
+        this(null);
+    }
+
+    public JmmCompiler(CompileCache cache) {
+        this(cache, null);
+    }
+
+    public JmmCompiler(CompileCache cache, IncrementalCache incremental) {
+        this.cache = cache;
+        this.incremental = incremental;
+        this.parser = new JmmParserImpl();
+        this.sema = new JmmAnalysisImpl();
+        this.ollirGen = new JmmOptimizationImpl();
+        this.jasminGen = new JasminBackendImpl();
+    }
+
+    public JasminResult compile(Map<String, String> config) {
+        return compile(config, new ArrayList<>());
+    }
+
+    /**
+     * Compiles the input file, adding the reports of each stage to the given list as the stage finishes.
+     */
+    public JasminResult compile(Map<String, String> config, List<Report> reports) {
+        // an AST written by AstWriter skips the parser, and the cache that is keyed by the source code
+        if (isAstInput(config)) {
+            return compile(parse(config, reports), reports);
+        }
+
+        return compile(readInput(config), config, reports);
+    }
+
+    public JasminResult compile(String code, Map<String, String> config, List<Report> reports) {
+        var cached = fromCache(code, config);
+        if (cached.isPresent()) {
+            var entry = cached.get();
+            System.out.print(entry.output());
+            reports.addAll(entry.reports());
+            return new JasminResult(entry.className(), entry.jasminCode(), entry.reports(), config);
+        }
+
+        // the optimizations work across methods, so the methods of an optimized class are never reused
+        if (incremental != null && CompilerConfig.getIncremental(config) && !CompilerConfig.getOptimize(config)) {
+            return compileIncrementally(code, config, reports);
+        }
+
+        if (!isCached(config)) {
+            return compile(parse(code, config, reports), reports);
+        }
+
+        // the output is kept to be replayed by the next compilations of the file
+        ThreadOutput.install();
+        var output = new ByteArrayOutputStream();
+        try {
+            var ollirResult = ThreadOutput.capture(output, () -> {
+                var parserResult = parse(code, config, reports);
+                var semanticsResult = analyse(parserResult, reports);
+                semanticsResult = optimize(semanticsResult, reports);
+                return toOllir(semanticsResult, reports);
+            });
+            var jasminResult = ThreadOutput.capture(output, () -> toJasmin(ollirResult, reports));
+
+            toCache(code, config, ollirResult.getOllirClass().getImports(), new CompileCache.Entry(
+                    jasminResult.getClassName(), output.toString(StandardCharsets.UTF_8), ollirResult.getOllirCode(),
+                    jasminResult.getJasminCode(), reports));
+            return jasminResult;
+        } finally {
+            System.out.print(output.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    private JasminResult compile(JmmParserResult parserResult, List<Report> reports) {
+        var semanticsResult = analyse(parserResult, reports);
+        semanticsResult = optimize(semanticsResult, reports);
+        var ollirResult = toOllir(semanticsResult, reports);
+        return toJasmin(ollirResult, reports);
+    }
+
+    /**
+     * Compiles the code reusing the OLLIR and Jasmin code of the methods that did not change since the last compilation
+     * of the input file.
+     */
+    private JasminResult compileIncrementally(String code, Map<String, String> config, List<Report> reports) {
+        var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
+        var registerAllocation = CompilerConfig.getRegisterAllocation(config);
+
+        // only the method or statement around the edit is parsed again
+        var previous = incremental.get(inputFile);
+        var parserResult = checkParse(previous
+                .flatMap(snapshot -> parser.reparse(snapshot.code(), snapshot.ast(), code, config))
+                .orElseGet(() -> parser.parse(code, config)), config, reports);
+        var root = parserResult.getRootNode();
+        var methods = root.getDescendants(METHOD_DECL);
+
+        // the analysis adds attributes to the AST, so the next parse gets a copy
+        var ast = NodeUtils.copyTree(root);
+        var fingerprints = IncrementalCache.fingerprint(root);
+        var changed = previous
+                .filter(snapshot -> snapshot.registerAllocation() == registerAllocation)
+                .flatMap(snapshot -> fingerprints.flatMap(current ->
+                        IncrementalCache.getChangedMethods(snapshot, current, root)));
+
+        Map<String, String> ollirMethods = new HashMap<>();
+        Map<String, String> jasminMethods = new HashMap<>();
+        JmmSemanticsResult semanticsResult;
+        if (changed.isEmpty()) {
+            semanticsResult = analyse(parserResult, reports);
+        } else {
+            var snapshot = previous.orElseThrow();
+            for (var method : methods) {
+                var name = method.get("name");
+                if (!changed.get().contains(name)) {
+                    ollirMethods.put(name, snapshot.ollirMethods().get(name));
+                    jasminMethods.put(name, snapshot.jasminMethods().get(name));
+                }
+            }
+
+            var changedMethods = methods.stream()
+                    .filter(method -> changed.get().contains(method.get("name")))
+                    .collect(Collectors.toList());
+            semanticsResult = sema.semanticAnalysis(parserResult, changedMethods);
+            reports.addAll(semanticsResult.getReports());
+            TestUtils.noErrors(semanticsResult.getReports());
+        }
+
+        var ollirResult = toOllir(ollirGen.optimize(ollirGen.toOllir(semanticsResult, ollirMethods)), reports);
+        var jasminResult = toJasmin(jasminGen.toJasmin(ollirResult, jasminMethods), reports);
+
+        fingerprints.ifPresent(current -> incremental.put(inputFile,
+                new IncrementalCache.Snapshot(registerAllocation, code, ast, current, ollirMethods,
+                        jasminMethods)));
+
+        System.out.println("Recompiled " + changed.map(Set::size).orElse(methods.size()) + " of " + methods.size()
+                + " methods");
+
+        return jasminResult;
+    }
+
+    /**
+     * @return the results of a previous compilation of the code, if the results are cached and the classes it imports
+     * did not change since
+     */
+    public Optional<CompileCache.Entry> fromCache(String code, Map<String, String> config) {
+        if (!isCached(config)) {
+            return Optional.empty();
+        }
+
+        return cache.lookup(cache.getKey(code, config), config);
+    }
+
+    public void toCache(String code, Map<String, String> config, List<String> imports, CompileCache.Entry entry) {
+        if (isCached(config)) {
+            cache.store(cache.getKey(code, config), config, imports, entry);
+        }
+    }
+
+    /**
+     * @return true if the results of compiling with the configuration are looked up in and stored to the cache
+     */
+    private boolean isCached(Map<String, String> config) {
+        // the parser profile and the written AST come from the parse of this compilation, which a hit skips
+        return cache != null && !CompilerConfig.getParserProfile(config) && !CompilerConfig.getWriteAst(config);
+    }
+
+    public JmmParserResult parse(Map<String, String> config, List<Report> reports) {
+        if (!isAstInput(config)) {
+            return parse(readInput(config), config, reports);
+        }
+
+        var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
+        JmmNode root;
+        try {
+            root = AstReader.read(inputFile.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        // Print AST
+        System.out.println(root.toTree());
+
+        return new JmmParserResult(root, new ArrayList<>(), config);
+    }
+
+    public static boolean isAstInput(Map<String, String> config) {
+        return AstReader.isAst(CompilerConfig.getInputFile(config).orElseThrow().toPath());
+    }
+
+    public static String readInput(Map<String, String> config) {
+        var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
+        if (!inputFile.isFile()) {
+            throw new RuntimeException("Option '-i' expects a path to an existing input file, got '" + inputFile + "'.");
+        }
+
+        return SpecsIo.read(inputFile);
+    }
+
+    /**
+     * Parses code that was already read, for callers that keep the input and output away from the compiling threads.
+     */
+    public JmmParserResult parse(String code, Map<String, String> config, List<Report> reports) {
+        // Parsing stage
+        return checkParse(parser.parse(code, config), config, reports);
+    }
+
+    private static JmmParserResult checkParse(JmmParserResult parserResult, Map<String, String> config,
+                                              List<Report> reports) {
+        reports.addAll(parserResult.getReports());
+        TestUtils.noErrors(parserResult.getReports());
+
+        // Print AST
+        System.out.println(parserResult.getRootNode().toTree());
+
+        if (CompilerConfig.getWriteAst(config)) {
+            writeAst(parserResult.getRootNode(), config);
+        }
+
+        return parserResult;
+    }
+
+    /**
+     * Writes the AST next to the input file, where the input file with the extension of binary ASTs finds it.
+     */
+    private static void writeAst(JmmNode root, Map<String, String> config) {
+        var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
+        var name = inputFile.getName();
+        var baseName = name.contains(".") ? name.substring(0, name.lastIndexOf('.')) : name;
+
+        try {
+            AstWriter.write(root, new File(inputFile.getParentFile(), baseName + AstWriter.EXTENSION).toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public JmmSemanticsResult analyse(JmmParserResult parserResult, List<Report> reports) {
+        // Semantic Analysis stage
+        JmmSemanticsResult semanticsResult = sema.semanticAnalysis(parserResult);
+        reports.addAll(semanticsResult.getReports());
+        TestUtils.noErrors(semanticsResult.getReports());
+
+        return semanticsResult;
+    }
+
+    public JmmSemanticsResult optimize(JmmSemanticsResult semanticsResult, List<Report> reports) {
+        // the default configuration always has the option, so the stage cannot check it by itself
+        if (!CompilerConfig.getOptimize(semanticsResult.getConfig())) {
+            return semanticsResult;
+        }
+
+        // AST optimizations
+        JmmSemanticsResult optimizedResult = ollirGen.optimize(semanticsResult);
+        reports.addAll(optimizedResult.getReports());
+        TestUtils.noErrors(optimizedResult.getReports());
+
+        return optimizedResult;
+    }
+
+    public OllirResult toOllir(JmmSemanticsResult semanticsResult, List<Report> reports) {
+        // Optimization stage
+        return toOllir(ollirGen.optimize(ollirGen.toOllir(semanticsResult)), reports);
+    }
+
+    private OllirResult toOllir(OllirResult ollirResult, List<Report> reports) {
+        reports.addAll(ollirResult.getReports());
+        TestUtils.noErrors(ollirResult.getReports());
+
+        // Print OLLIR code
+        System.out.println(ollirResult.getOllirCode());
+
+        return ollirResult;
+    }
+
+    public JasminResult toJasmin(OllirResult ollirResult, List<Report> reports) {
+        // Code generation stage
+        return toJasmin(jasminGen.toJasmin(ollirResult), reports);
+    }
+
+    private JasminResult toJasmin(JasminResult jasminResult, List<Report> reports) {
+        reports.addAll(jasminResult.getReports());
+        TestUtils.noErrors(jasminResult.getReports());
+
+        // Print Jasmin code
+        System.out.println(jasminResult.getJasminCode());
+
+        return jasminResult;
+    }
+}
@@ -1,17 +1,9 @@
 package pt.up.fe.comp2024;
 
-import pt.up.fe.comp.TestUtils;
-import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
-import pt.up.fe.comp.jmm.jasmin.JasminResult;
-import pt.up.fe.comp.jmm.ollir.OllirResult;
-import pt.up.fe.comp.jmm.parser.JmmParserResult;
-import pt.up.fe.comp2024.analysis.JmmAnalysisImpl;
-import pt.up.fe.comp2024.backend.JasminBackendImpl;
-import pt.up.fe.comp2024.optimization.JmmOptimizationImpl;
-import pt.up.fe.comp2024.parser.JmmParserImpl;
-import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsSystem;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Map;
 
 public class  Launcher {
@@ -21,40 +13,42 @@ public class  Launcher {
 
         Map<String, String> config = CompilerConfig.parseArgs(args);
 
-        var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
-        if (!inputFile.isFile()) {
-            throw new RuntimeException("Option '-i' expects a path to an existing input file, got '" + args[0] + "'.");
+        var cache = CompilerConfig.getCacheDir(config)
+                .map(dir -> new CompileCache(dir, CompileCache.DEFAULT_MAX_BYTES))
+                .orElse(null);
+
+        try {
+            if (CompilerConfig.getWatch(config)) {
+                new FileWatcher(FileWatcher.getRoots(config), cache, System.out).run(config);
+                return;
+            }
+
+            var daemonPort = CompilerConfig.getDaemonPort(config);
+            if (daemonPort.isPresent()) {
+                new CompilerDaemon(daemonPort.get()).run();
+                return;
+            }
+
+            var batch = CompilerConfig.getBatch(config);
+            if (batch.isPresent()) {
+                var files = BatchCompiler.getFiles(batch.get());
+                var pipeline = CompilerConfig.getPipeline(config);
+                var success = pipeline.isPresent()
+                        ? new PipelinedCompiler(pipeline.get(), PipelinedCompiler.DEFAULT_QUEUE_CAPACITY, cache)
+                                .compile(files, config, System.out)
+                        : new BatchCompiler(cache).compile(files, config, System.out);
+                System.exit(success ? 0 : 1);
+            }
+
+            var clientPort = CompilerConfig.getClientPort(config);
+            if (clientPort.isPresent()) {
+                System.exit(new CompilerClient(clientPort.get()).compile(args));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        String code = SpecsIo.read(inputFile);
 
-        // Parsing stage
-        JmmParserImpl parser = new JmmParserImpl();
-        JmmParserResult parserResult = parser.parse(code, config);
-        TestUtils.noErrors(parserResult.getReports());
-
-        // Print AST
-        System.out.println(parserResult.getRootNode().toTree());
-        // Semantic Analysis stage
-        JmmAnalysisImpl sema = new JmmAnalysisImpl();
-        JmmSemanticsResult semanticsResult = sema.semanticAnalysis(parserResult);
-        TestUtils.noErrors(semanticsResult.getReports());
-
-
-        // Optimization stage
-        JmmOptimizationImpl ollirGen = new JmmOptimizationImpl();
-        OllirResult ollirResult = ollirGen.toOllir(semanticsResult);
-        TestUtils.noErrors(ollirResult.getReports());
-
-        // Print OLLIR code
-        System.out.println(ollirResult.getOllirCode());
-
-        // Code generation stage
-        JasminBackendImpl jasminGen = new JasminBackendImpl();
-        JasminResult jasminResult = jasminGen.toJasmin(ollirResult);
-        TestUtils.noErrors(jasminResult.getReports());
-
-        // Print Jasmin code
-        System.out.println(jasminResult.getJasminCode());
+        new JmmCompiler(cache).compile(config);
     }
 
 }
@@ -0,0 +1,299 @@
+package pt.up.fe.comp2024;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2024.utils.ThreadOutput;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Compiles a batch of files with each stage of the compiler running on its own threads.
+ * <p>
+ * The stages are connected by bounded queues. A stage that falls behind fills the queue before it and makes the
+ * stages before it wait, so the number of files between two stages, and with them the ASTs alive at once, never goes
+ * above the capacity of the queues and the threads of the stages. With one thread per stage the files go through the
+ * stages one after the other, like {@link JmmCompiler#compile}.
+ */
+public class PipelinedCompiler {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    private static final List<String> STAGE_NAMES = List.of("parse", "analysis", "optimization", "ollir", "backend");
+
+    // a file found in the cache goes through the stages with the cached entry as its result
+    private static final List<BiFunction<JmmCompiler, Job, Object>> STAGES = List.of(
+            PipelinedCompiler::parse,
+            (compiler, job) -> job.result instanceof CompileCache.Entry ? job.result
+                    : compiler.analyse((JmmParserResult) job.result, job.reports),
+            (compiler, job) -> job.result instanceof CompileCache.Entry ? job.result
+                    : compiler.optimize((JmmSemanticsResult) job.result, job.reports),
+            (compiler, job) -> job.result instanceof CompileCache.Entry ? job.result
+                    : compiler.toOllir((JmmSemanticsResult) job.result, job.reports),
+            (compiler, job) -> job.result instanceof CompileCache.Entry ? job.result
+                    : toJasmin(compiler, job)
+    );
+
+    private final int[] stageThreads;
+
+    private final int queueCapacity;
+
+    // each thread only runs one stage, so it only uses that stage of its compiler
+    private final ThreadLocal<JmmCompiler> compilers;
+
+    // the files that started the first stage and did not finish the last one, which are the ones with an AST alive
+    private final AtomicInteger jobsInStages = new AtomicInteger();
+    private final AtomicInteger maxJobsInStages = new AtomicInteger();
+
+    /**
+     * @param cache the cache of the results of the files, or null to compile every file
+     */
+    public PipelinedCompiler(int[] stageThreads, int queueCapacity, CompileCache cache) {
+        if (stageThreads.length != STAGES.size()) {
+            throw new RuntimeException("Expected the number of threads of the stages " + STAGE_NAMES + ", got "
+                    + Arrays.toString(stageThreads));
+        }
+
+        if (queueCapacity < 1) {
+            throw new RuntimeException("The queues between the stages need room for at least one file, got "
+                    + queueCapacity);
+        }
+
+        this.stageThreads = stageThreads;
+        this.queueCapacity = queueCapacity;
+        this.compilers = ThreadLocal.withInitial(() -> new JmmCompiler(cache));
+    }
+
+    private static Object parse(JmmCompiler compiler, Job job) {
+        if (JmmCompiler.isAstInput(job.config)) {
+            return compiler.parse(job.config, job.reports);
+        }
+
+        job.code = JmmCompiler.readInput(job.config);
+
+        var cached = compiler.fromCache(job.code, job.config);
+        if (cached.isPresent()) {
+            System.out.print(cached.get().output());
+            job.reports.addAll(cached.get().reports());
+            return cached.get();
+        }
+
+        return compiler.parse(job.code, job.config, job.reports);
+    }
+
+    private static Object toJasmin(JmmCompiler compiler, Job job) {
+        var ollirResult = (OllirResult) job.result;
+        var jasminResult = compiler.toJasmin(ollirResult, job.reports);
+
+        // the output of every stage was printed by now
+        System.out.flush();
+        // a binary AST has no source code to be the key of the cache
+        if (job.code == null) {
+            return jasminResult;
+        }
+
+        compiler.toCache(job.code, job.config, ollirResult.getOllirClass().getImports(), new CompileCache.Entry(
+                jasminResult.getClassName(), job.output.toString(StandardCharsets.UTF_8), ollirResult.getOllirCode(),
+                jasminResult.getJasminCode(), job.reports));
+
+        return jasminResult;
+    }
+
+    /**
+     * Parses the number of threads of each stage, either one number for all of them or one number per stage
+     * separated by commas.
+     */
+    public static int[] parseStageThreads(String value) {
+        if (value.equals("true")) {
+            value = String.valueOf(Runtime.getRuntime().availableProcessors());
+        }
+
+        int[] counts;
+        try {
+            counts = Arrays.stream(value.split(",", -1)).mapToInt(Integer::parseInt).toArray();
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Expected the number of threads of the stages, got '" + value + "'", e);
+        }
+
+        if (counts.length == 1) {
+            var count = counts[0];
+            counts = new int[STAGES.size()];
+            Arrays.fill(counts, count);
+        }
+
+        if (counts.length != STAGES.size()) {
+            throw new RuntimeException("Expected one number of threads or one for each of the stages " + STAGE_NAMES
+                    + ", got '" + value + "'");
+        }
+
+        if (Arrays.stream(counts).anyMatch(count -> count < 1)) {
+            throw new RuntimeException("Each stage needs at least one thread, got '" + value + "'");
+        }
+
+        return counts;
+    }
+
+    /**
+     * A file going through the stages, with the result of the last stage it went through.
+     */
+    private static class Job {
+        private final int index;
+        private final File file;
+        private final Map<String, String> config;
+        private final ByteArrayOutputStream output;
+        private final List<Report> reports;
+        private String code;
+        private Object result;
+        private String error;
+
+        private Job(int index, File file, Map<String, String> config) {
+            this.index = index;
+            this.file = file;
+            this.config = config;
+            this.output = new ByteArrayOutputStream();
+            this.reports = new ArrayList<>();
+        }
+
+        private BatchCompiler.FileResult toFileResult() {
+            return new BatchCompiler.FileResult(file, output.toString(StandardCharsets.UTF_8), reports, error);
+        }
+    }
+
+    /**
+     * Compiles the files with the options of the given configuration and prints their results in order.
+     *
+     * @return true if every file compiled without errors
+     */
+    public boolean compile(List<File> files, Map<String, String> config, PrintStream out) {
+        ThreadOutput.install();
+
+        // queues[i] holds the files waiting for stage i, and the last one the files that went through every stage
+        List<BlockingQueue<Job>> queues = new ArrayList<>();
+        for (int i = 0; i <= STAGES.size(); i++) {
+            queues.add(new ArrayBlockingQueue<>(queueCapacity));
+        }
+
+        List<ExecutorService> pools = new ArrayList<>();
+        var failed = 0;
+        try {
+            for (int i = 0; i < STAGES.size(); i++) {
+                var pool = Executors.newFixedThreadPool(stageThreads[i]);
+                pools.add(pool);
+                for (int thread = 0; thread < stageThreads[i]; thread++) {
+                    var stage = i;
+                    pool.execute(() -> runStage(stage, queues.get(stage), queues.get(stage + 1)));
+                }
+            }
+
+            var feeder = Executors.newSingleThreadExecutor();
+            pools.add(feeder);
+            feeder.execute(() -> {
+                for (int i = 0; i < files.size(); i++) {
+                    var fileConfig = new HashMap<>(config);
+                    fileConfig.put(CompilerConfig.INPUT_FILE, files.get(i).getAbsolutePath());
+                    if (!put(queues.get(0), new Job(i, files.get(i), fileConfig))) {
+                        return;
+                    }
+                }
+            });
+
+            // the files can finish out of order, so each one waits for the ones before it
+            var done = queues.get(STAGES.size());
+            Map<Integer, Job> finished = new HashMap<>();
+            for (int next = 0; next < files.size(); ) {
+                var job = done.take();
+                finished.put(job.index, job);
+
+                while (finished.containsKey(next)) {
+                    var result = finished.remove(next).toFileResult();
+                    BatchCompiler.print(result, out);
+                    if (!result.isSuccess()) {
+                        failed++;
+                    }
+                    next++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Pipelined compilation was interrupted", e);
+        } finally {
+            pools.forEach(ExecutorService::shutdownNow);
+        }
+
+        out.println("Compiled " + files.size() + " files, " + failed + " failed");
+        return failed == 0;
+    }
+
+    /**
+     * @return the largest number of files that were between the start of the first stage and the end of the last one
+     * at the same time, which the queues keep under the threads of the stages plus the capacity of the queues between
+     * them
+     */
+    int getMaxJobsInStages() {
+        return maxJobsInStages.get();
+    }
+
+    private void runStage(int stage, BlockingQueue<Job> in, BlockingQueue<Job> out) {
+        while (true) {
+            Job job;
+            try {
+                job = in.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            if (stage == 0) {
+                maxJobsInStages.accumulateAndGet(jobsInStages.incrementAndGet(), Math::max);
+            }
+
+            // a file that failed goes straight to the end, whatever it threw, since compile waits for every file
+            if (job.error == null) {
+                try {
+                    job.result = ThreadOutput.capture(job.output, () -> STAGES.get(stage).apply(compilers.get(), job));
+                } catch (Throwable e) {
+                    job.result = null;
+                    job.error = e.getMessage() != null ? e.getMessage() : e.toString();
+                }
+            }
+
+            // the finished files only keep their output, so waiting for the ones before them keeps no AST alive
+            if (stage == STAGES.size() - 1) {
+                job.result = null;
+                jobsInStages.decrementAndGet();
+            }
+
+            if (!put(out, job)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits for room in the queue.
+     *
+     * @return false if the compilation was stopped while waiting
+     */
+    private static boolean put(BlockingQueue<Job> queue, Job job) {
+        try {
+            queue.put(job);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+}
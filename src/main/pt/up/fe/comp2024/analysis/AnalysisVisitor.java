@@ -31,6 +31,9 @@ public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Vo
 
     @Override
     public List<Report> analyze(JmmNode root, SymbolTable table) {
+        // the passes are reused, so the reports of the last analysis are dropped
+        reports = new ArrayList<>();
+
         // Visit the node
         visit(root, table);
 
@@ -41,15 +41,25 @@ public class JmmAnalysisImpl implements JmmAnalysis {
 
         System.out.println(parserResult.getRootNode().toTree()); // TODO
 
-        SymbolTable table = JmmSymbolTableBuilder.build(rootNode);
+        return semanticAnalysis(parserResult, List.of(rootNode));
+    }
+
+    /**
+     * Runs the passes only on the given subtrees of the AST, such as the methods that changed since the class was last
+     * analysed. The declarations of the class are only checked when one of the subtrees is the whole AST.
+     */
+    public JmmSemanticsResult semanticAnalysis(JmmParserResult parserResult, List<JmmNode> nodes) {
+
+        SymbolTable table = JmmSymbolTableBuilder.build(parserResult.getRootNode());
 
         List<Report> reports = new ArrayList<>();
 
         // Visit all nodes in the AST
         for (var analysisPass : analysisPasses) {
             try {
-                var passReports = analysisPass.analyze(rootNode, table);
-                reports.addAll(passReports);
+                for (var node : nodes) {
+                    reports.addAll(analysisPass.analyze(node, table));
+                }
                 if (!reports.isEmpty()) {
                     break;
                 }
@@ -27,10 +27,16 @@ public class DuplicateNames extends AnalysisVisitor {
         addVisit(Kind.IMPORT_DECL, this::visitImportDecl);
         addVisit(Kind.VAR_DECL, this::visitVarDecl);
         addVisit(Kind.PARAM,this::visitParam);
-        addVisit(Kind.PROGRAM, this::initializeLists);
     }
 
-    private Void initializeLists(JmmNode jmmNode, SymbolTable symbolTable) {
+    @Override
+    public List<Report> analyze(JmmNode root, SymbolTable table) {
+        // the analysis may start at a method instead of the program
+        initializeLists();
+        return super.analyze(root, table);
+    }
+
+    private void initializeLists() {
         this.currentMethod = null;
         this.importedClasses = new ArrayList<>();
         this.importPaths = new ArrayList<>();
@@ -38,7 +44,6 @@ public class DuplicateNames extends AnalysisVisitor {
         this.methods = new ArrayList<>();
         this.parameters = new ArrayList<>();
         this.localVariables = new ArrayList<>();
-        return null;
     }
 
     private Void visitParam(JmmNode param, SymbolTable table) {
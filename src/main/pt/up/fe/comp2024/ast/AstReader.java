@@ -0,0 +1,184 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads an AST written by {@link AstWriter}.
+ * <p>
+ * The tree is decoded straight from a {@link ByteBuffer}, so a file mapped into memory is read without being copied
+ * first. Each string of the dictionary is decoded once and shared by every node that uses it.
+ */
+public class AstReader {
+
+    private static final Kind[] KINDS = Kind.values();
+
+    private final ByteBuffer buffer;
+    private String[] strings;
+
+    private AstReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public static JmmNode read(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static JmmNode read(byte[] bytes) {
+        return read(ByteBuffer.wrap(bytes));
+    }
+
+    public static JmmNode read(ByteBuffer buffer) {
+        var reader = new AstReader(buffer.slice());
+        try {
+            reader.readHeader();
+            return reader.readNode();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new RuntimeException("Truncated binary AST", e);
+        }
+    }
+
+    /**
+     * @return true if the file has the extension of the files written by {@link AstWriter}
+     */
+    public static boolean isAst(Path file) {
+        return file.toString().endsWith(AstWriter.EXTENSION);
+    }
+
+    private void readHeader() {
+        var magic = new byte[AstWriter.MAGIC.length];
+        if (buffer.remaining() < magic.length) {
+            throw new RuntimeException("Not a binary AST, the input is too short");
+        }
+
+        buffer.get(magic);
+        if (!Arrays.equals(magic, AstWriter.MAGIC)) {
+            throw new RuntimeException("Not a binary AST, unexpected header " + Arrays.toString(magic));
+        }
+
+        var version = readVarint();
+        if (version != AstWriter.VERSION) {
+            throw new RuntimeException("Unsupported binary AST version " + version + ", expected "
+                    + AstWriter.VERSION);
+        }
+
+        var kindsHash = readVarint();
+        if (kindsHash != AstWriter.KINDS_HASH) {
+            throw new RuntimeException("Binary AST written by a compiler with other node kinds");
+        }
+
+        strings = new String[readCount()];
+        for (int i = 0; i < strings.length; i++) {
+            var length = readVarint();
+            strings[i] = StandardCharsets.UTF_8.decode(buffer.slice(buffer.position(), length)).toString();
+            buffer.position(buffer.position() + length);
+        }
+    }
+
+    private JmmNode readNode() {
+        var kindIndex = readVarint();
+        if (kindIndex < 0 || kindIndex > KINDS.length) {
+            throw new RuntimeException("Unknown node kind " + kindIndex + " in binary AST");
+        }
+
+        var kind = kindIndex == AstWriter.OTHER_KIND ? readString() : KINDS[kindIndex - 1].getNodeName();
+        var node = new JmmNodeImpl(kind);
+
+        var hierarchySize = readCount();
+        if (hierarchySize > 0) {
+            List<String> hierarchy = new ArrayList<>(hierarchySize);
+            for (int i = 0; i < hierarchySize; i++) {
+                hierarchy.add(readString());
+            }
+            node.setHierarchy(hierarchy);
+        }
+
+        var numAttributes = readVarint();
+        for (int i = 0; i < numAttributes; i++) {
+            var attribute = readString();
+            node.putObject(attribute, readValue());
+        }
+
+        var numChildren = readVarint();
+        for (int i = 0; i < numChildren; i++) {
+            node.add(readNode());
+        }
+
+        return node;
+    }
+
+    private Object readValue() {
+        var tag = readVarint();
+        switch (tag) {
+            case AstWriter.STRING:
+                return readString();
+            case AstWriter.BOOLEAN:
+                return readVarint() == 1;
+            case AstWriter.INTEGER:
+                var zigzag = readVarint();
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            case AstWriter.STRING_LIST:
+                var size = readCount();
+                List<String> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readString());
+                }
+                return list;
+            case AstWriter.TYPE:
+                var name = readString();
+                return new Type(name, readVarint() == 1);
+            default:
+                throw new RuntimeException("Unknown attribute value tag " + tag + " in binary AST");
+        }
+    }
+
+    private String readString() {
+        var index = readVarint();
+        if (index < 0 || index >= strings.length) {
+            throw new RuntimeException("Unknown string " + index + " in binary AST");
+        }
+
+        return strings[index];
+    }
+
+    /**
+     * Reads the number of elements that follow, each taking at least one byte, so a corrupted count is found before
+     * room is made for them.
+     */
+    private int readCount() {
+        var count = readVarint();
+        if (count < 0 || count > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        return count;
+    }
+
+    private int readVarint() {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            var b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new RuntimeException("Malformed varint in binary AST");
+    }
+}
@@ -0,0 +1,160 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Writes an AST in a compact binary format, read back by {@link AstReader}.
+ * <p>
+ * The file starts with {@link #MAGIC}, {@link #VERSION} and {@link #KINDS_HASH}, followed by a dictionary with every
+ * string of the tree written once. The nodes follow in preorder: the kind, the hierarchy, the attributes and the number
+ * of children. The kinds of {@link Kind} are written as their ordinal and every other kind, attribute name or string
+ * value as its index in the dictionary. All numbers are varints, so most of them take a single byte.
+ */
+public class AstWriter {
+
+    public static final String EXTENSION = ".jmmast";
+
+    static final byte[] MAGIC = {'J', 'M', 'M', 'B'};
+    static final int VERSION = 2;
+
+    // the ordinals only mean the same kinds to a reader built with the same Kind
+    static final int KINDS_HASH = Arrays.stream(Kind.values())
+            .map(Kind::getNodeName)
+            .collect(Collectors.joining(",")).hashCode();
+
+    // kinds not in Kind are written as 0 followed by the index of their name in the dictionary
+    static final int OTHER_KIND = 0;
+
+    static final int STRING = 0;
+    static final int BOOLEAN = 1;
+    static final int INTEGER = 2;
+    static final int STRING_LIST = 3;
+    static final int TYPE = 4;
+
+    private final Map<String, Integer> dictionary;
+    private final List<String> strings;
+    private final ByteArrayOutputStream nodes;
+
+    private AstWriter() {
+        this.dictionary = new HashMap<>();
+        this.strings = new ArrayList<>();
+        this.nodes = new ByteArrayOutputStream();
+    }
+
+    public static byte[] toBytes(JmmNode root) {
+        var writer = new AstWriter();
+        writer.writeNode(root);
+
+        var out = new ByteArrayOutputStream();
+        out.writeBytes(MAGIC);
+        writeVarint(out, VERSION);
+        writeVarint(out, KINDS_HASH);
+
+        writeVarint(out, writer.strings.size());
+        for (var string : writer.strings) {
+            var bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.writeBytes(bytes);
+        }
+
+        out.writeBytes(writer.nodes.toByteArray());
+        return out.toByteArray();
+    }
+
+    public static void write(JmmNode root, Path file) throws IOException {
+        Files.write(file, toBytes(root));
+    }
+
+    private void writeNode(JmmNode node) {
+        writeKind(node.getKind());
+
+        // the hierarchy is only written when it is more than the kind
+        var hierarchy = new ArrayList<>(node.getHierarchy());
+        if (hierarchy.size() == 1 && hierarchy.get(0).equals(node.getKind())) {
+            writeVarint(nodes, 0);
+        } else {
+            writeVarint(nodes, hierarchy.size());
+            hierarchy.forEach(this::writeString);
+        }
+
+        var attributes = node.getAttributes();
+        writeVarint(nodes, attributes.size());
+        for (var attribute : attributes) {
+            writeString(attribute);
+            writeValue(node, attribute, node.getObject(attribute));
+        }
+
+        writeVarint(nodes, node.getNumChildren());
+        for (var child : node.getChildren()) {
+            writeNode(child);
+        }
+    }
+
+    private void writeKind(String kind) {
+        for (var value : Kind.values()) {
+            if (value.getNodeName().equals(kind)) {
+                writeVarint(nodes, value.ordinal() + 1);
+                return;
+            }
+        }
+
+        writeVarint(nodes, OTHER_KIND);
+        writeString(kind);
+    }
+
+    private void writeValue(JmmNode node, String attribute, Object value) {
+        if (value instanceof String string) {
+            writeVarint(nodes, STRING);
+            writeString(string);
+        } else if (value instanceof Boolean bool) {
+            writeVarint(nodes, BOOLEAN);
+            writeVarint(nodes, bool ? 1 : 0);
+        } else if (value instanceof Integer integer) {
+            writeVarint(nodes, INTEGER);
+            // zigzag, so small negative numbers stay small
+            writeVarint(nodes, (integer << 1) ^ (integer >> 31));
+        } else if (value instanceof List<?> list && list.stream().allMatch(String.class::isInstance)) {
+            writeVarint(nodes, STRING_LIST);
+            writeVarint(nodes, list.size());
+            list.forEach(element -> writeString((String) element));
+        } else if (value instanceof Type type) {
+            writeVarint(nodes, TYPE);
+            writeString(type.getName());
+            writeVarint(nodes, type.isArray() ? 1 : 0);
+        } else {
+            throw new RuntimeException("Cannot write attribute '" + attribute + "' of node '" + node
+                    + "', values of " + (value == null ? "null" : value.getClass()) + " are not supported");
+        }
+    }
+
+    private void writeString(String string) {
+        var index = dictionary.computeIfAbsent(string, key -> {
+            strings.add(key);
+            return strings.size() - 1;
+        });
+
+        writeVarint(nodes, index);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.write(value);
+    }
+}
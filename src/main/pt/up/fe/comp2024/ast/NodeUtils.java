@@ -1,6 +1,17 @@
 package pt.up.fe.comp2024.ast;
 
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.MethodSummary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static pt.up.fe.comp2024.ast.Kind.*;
 
 public class NodeUtils {
 
@@ -24,5 +35,150 @@ public class NodeUtils {
         return Boolean.parseBoolean(line);
     }
 
+    /**
+     * Tests if evaluating the expression can neither change the program state nor throw, so it can be
+     * duplicated, reordered or dropped.
+     *
+     * @param expr
+     * @return
+     */
+    public static boolean isSideEffectFree(JmmNode expr) {
+        return expr.getDescendantsAndSelfStream().allMatch(NodeUtils::isSideEffectFreeNode);
+    }
+
+    /**
+     * Same as {@link #isSideEffectFree(JmmNode)}, but also accepts static calls to methods of the class that are known
+     * to have no side effects. Such calls may still read fields, so they cannot be moved across writes to fields.
+     *
+     * @param expr
+     * @param table
+     * @return
+     */
+    public static boolean isSideEffectFree(JmmNode expr, JmmSymbolTable table) {
+        return expr.getDescendantsAndSelfStream().allMatch(node -> {
+            if (!METHOD_CALL_EXPR.check(node)) {
+                return isSideEffectFreeNode(node);
+            }
+
+            return isStaticClassCall(node, table.getClassName()) && table.getMethodSummary(node.get("name"))
+                    .map(MethodSummary::hasNoSideEffects)
+                    .orElse(false);
+        });
+    }
+
+    /**
+     * Tests if the call is made through the name of the class to one of its static methods, so the method that runs is
+     * the one in the class. Any other call to a method of the class may run an override from a subclass compiled
+     * separately.
+     *
+     * @param methodCall
+     * @param className
+     * @return
+     */
+    public static boolean isStaticClassCall(JmmNode methodCall, String className) {
+        var target = methodCall.getChild(0);
+        if (!VAR_REF_EXPR.check(target) || !target.get("name").equals(className)) {
+            return false;
+        }
+
+        var name = methodCall.get("name");
+        return methodCall.getAncestor(CLASS_DECL).stream()
+                .flatMap(classDecl -> classDecl.getChildren(METHOD_DECL).stream())
+                .anyMatch(method -> method.get("name").equals(name) && method.get("isStatic").equals("true"));
+    }
+
+    private static boolean isSideEffectFreeNode(JmmNode node) {
+        if (BINARY_EXPR.check(node)) {
+            // division by zero throws
+            return !node.get("op").equals("/");
+        }
+
+        return Kind.check(node, INTEGER_LITERAL, BOOL_LITERAL, VAR_REF_EXPR, THIS_LITERAL, PAREN_EXPR, UNARY_EXPR);
+    }
+
+    /**
+     * Declares a new local variable in the method, both in the AST and in the symbol table. The name of the variable
+     * is the given one, followed by a number if needed to not hide any other name.
+     *
+     * @param method
+     * @param baseName
+     * @param type
+     * @param table
+     * @return the name of the new variable
+     */
+    public static String declareLocal(JmmNode method, String baseName, Type type, JmmSymbolTable table) {
+        var methodName = method.get("name");
+
+        var name = baseName;
+        for (int i = 1; TypeUtils.getVarRefType(name, table, Optional.of(method)) != null
+                || name.equals(table.getClassName()); i++) {
+            name = baseName + i;
+        }
+
+        var typeNode = TYPE.createNode();
+        typeNode.put("name", type.getName());
+        typeNode.putObject("isArray", type.isArray());
+        typeNode.putObject("isVarArgs", false);
+
+        var varDecl = VAR_DECL.createNode();
+        varDecl.put("name", name);
+        varDecl.add(typeNode);
+
+        var varDecls = method.getChildren(VAR_DECL);
+        if (varDecls.isEmpty()) {
+            method.add(varDecl, method.getChildren(PARAM).size() + 1);
+        } else {
+            varDecls.get(varDecls.size() - 1).insertAfter(varDecl);
+        }
+
+        var localType = new Type(type.getName(), type.isArray());
+        localType.putObject("isVarArgs", false);
+
+        var locals = new ArrayList<>(table.getLocalVariables(methodName));
+        locals.add(new Symbol(localType, name));
+        table.putMethod(methodName, table.getReturnType(methodName), table.getParameters(methodName), locals);
+
+        return name;
+    }
+
+    /**
+     * @param node
+     * @return the number of nodes in the subtree rooted at the given node
+     */
+    public static int getSize(JmmNode node) {
+        return (int) node.getDescendantsAndSelfStream().count();
+    }
+
+    /**
+     * Unlike {@link JmmNode#copy()}, keeps the values of the attributes instead of turning them into strings.
+     *
+     * @param node
+     * @return a copy of the subtree rooted at the given node, without a parent
+     */
+    public static JmmNode copyTree(JmmNode node) {
+        var copy = copyNode(node);
+        for (var child : node.getChildren()) {
+            copy.add(copyTree(child));
+        }
+
+        return copy;
+    }
+
+    /**
+     * @param node
+     * @return a copy of the given node, with its attributes and hierarchy but without its children
+     */
+    public static JmmNode copyNode(JmmNode node) {
+        var copy = new JmmNodeImpl(node.getKind());
+        copy.setHierarchy(new ArrayList<>(node.getHierarchy()));
+
+        for (var attribute : node.getAttributes()) {
+            var value = node.getObject(attribute);
+            // the copy does not share its lists, which the passes cast to ArrayList
+            copy.putObject(attribute, value instanceof List<?> list ? new ArrayList<>(list) : value);
+        }
+
+        return copy;
+    }
 
 }
@@ -4,6 +4,8 @@ import pt.up.fe.comp.jmm.jasmin.JasminBackend;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 
+import java.util.Map;
+
 public class JasminBackendImpl implements JasminBackend {
 
     @Override
@@ -15,4 +17,16 @@ public class JasminBackendImpl implements JasminBackend {
         return new JasminResult(ollirResult, jasminCode, jasminGenerator.getReports());
     }
 
+    /**
+     * Generates the Jasmin code reusing the code of the methods in the map, and adds the code of the other methods to
+     * it.
+     */
+    public JasminResult toJasmin(OllirResult ollirResult, Map<String, String> methodCodes) {
+
+        var jasminGenerator = new JasminGenerator(ollirResult, methodCodes);
+        var jasminCode = jasminGenerator.build();
+
+        return new JasminResult(ollirResult, jasminCode, jasminGenerator.getReports());
+    }
+
 }
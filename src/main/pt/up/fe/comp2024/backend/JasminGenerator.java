@@ -21,6 +21,11 @@ public class JasminGenerator {
     private static final String NL = "\n";
     private static final String TAB = "   ";
 
+    // library methods whose parameter types differ from the types of the OLLIR arguments
+    private static final Map<String, String> INTRINSIC_DESCRIPTORS = Map.of(
+            "java/lang/System/arraycopy", "(Ljava/lang/Object;ILjava/lang/Object;II)V"
+    );
+
     private final OllirResult ollirResult;
 
     List<Report> reports;
@@ -34,10 +39,27 @@ public class JasminGenerator {
     private int current_stack;
     private int stack_limit;
 
+    // used to generate unique labels for the comparisons used as values
+    private int labelCounter;
+
+    // variables of the current method whose value is left on the stack instead of being stored
+    private Set<String> stackified = new HashSet<>();
+
     private final FunctionClassMap<TreeNode, String> generators;
 
+    // code of each method by name, reused instead of generating the method, or null to generate every method
+    private final Map<String, String> methodCodes;
+
     public JasminGenerator(OllirResult ollirResult) {
+        this(ollirResult, null);
+    }
+
+    /**
+     * @param methodCodes the code of the methods that did not change, which gets the code of every other method
+     */
+    public JasminGenerator(OllirResult ollirResult, Map<String, String> methodCodes) {
         this.ollirResult = ollirResult;
+        this.methodCodes = methodCodes;
 
         reports = new ArrayList<>();
         code = null;
@@ -132,7 +154,8 @@ public class JasminGenerator {
                 continue;
             }
 
-            code.append(generators.apply(method));
+            code.append(methodCodes == null ? generators.apply(method)
+                    : methodCodes.computeIfAbsent(method.getMethodName(), name -> generators.apply(method)));
         }
 
         return code.toString();
@@ -174,6 +197,7 @@ public class JasminGenerator {
 
         this.stack_limit = 0;
         this.current_stack = 0;
+        this.stackified = findStackifiedVars(method, getTemps(method));
 
         HashMap<String,Instruction> labels = method.getLabels();
         var instruction_code = new StringBuilder();
@@ -193,7 +217,6 @@ public class JasminGenerator {
                 if (entry.getValue() == inst) {
                     // Prepend the label to the instruction code
                     instCode = entry.getKey() + ":" + NL + instCode;
-                    break;
                 }
             }
 
@@ -215,6 +238,140 @@ public class JasminGenerator {
     }
 
 
+    /**
+     * The temporaries are the variables the OLLIR generator added to a method, which are the ones the symbol table does
+     * not declare. Without a symbol table, as when the OLLIR code is given directly, every variable is a variable of the
+     * program.
+     */
+    private Set<String> getTemps(Method method) {
+        var table = ollirResult.getSymbolTable();
+        var name = method.getMethodName();
+        if (table == null || !table.getMethods().contains(name)) {
+            return Collections.emptySet();
+        }
+
+        var temps = new HashSet<>(method.getVarTable().keySet());
+        table.getParameters(name).forEach(param -> temps.remove(param.getName()));
+        table.getLocalVariables(name).forEach(local -> temps.remove(local.getName()));
+        temps.remove("this");
+
+        return temps;
+    }
+
+    /**
+     * Finds the temporaries that are assigned once and read once, by the instruction that follows the assignment
+     * and as the first value that instruction loads. The value of these variables can stay on the stack, so neither
+     * the store nor the load are generated.
+     */
+    private static Set<String> findStackifiedVars(Method method, Set<String> temps) {
+        var instructions = method.getInstructions();
+        var defs = new HashMap<String, Integer>();
+        var uses = new HashMap<String, Integer>();
+
+        for (var inst : instructions) {
+            inst.getDescendantsStream()
+                    .filter(Operand.class::isInstance)
+                    .forEach(operand -> uses.merge(((Operand) operand).getName(), 1, Integer::sum));
+
+            // the destination of an assignment is not a use, except when storing into an array
+            if (inst instanceof AssignInstruction assign && !(assign.getDest() instanceof ArrayOperand)) {
+                var name = ((Operand) assign.getDest()).getName();
+                defs.merge(name, 1, Integer::sum);
+                uses.merge(name, -1, Integer::sum);
+            }
+        }
+
+        var stackified = new HashSet<String>();
+        for (int i = 0; i + 1 < instructions.size(); i++) {
+            if (!(instructions.get(i) instanceof AssignInstruction assign) || assign.getDest() instanceof ArrayOperand) {
+                continue;
+            }
+
+            // variables of the program keep their register
+            var name = ((Operand) assign.getDest()).getName();
+            if (!temps.contains(name)) {
+                continue;
+            }
+
+            var descriptor = method.getVarTable().get(name);
+            if (descriptor == null || descriptor.getScope() != VarScope.LOCAL
+                    || defs.get(name) != 1 || uses.getOrDefault(name, 0) != 1) {
+                continue;
+            }
+
+            // the stack is empty when jumping to a label
+            var next = instructions.get(i + 1);
+            if (!method.getLabels(next).isEmpty()) {
+                continue;
+            }
+
+            var firstLoaded = getFirstLoaded(next);
+            if (firstLoaded.isPresent() && !(firstLoaded.get() instanceof ArrayOperand)
+                    && firstLoaded.get() instanceof Operand operand && operand.getName().equals(name)) {
+                stackified.add(name);
+            }
+        }
+
+        return stackified;
+    }
+
+    /**
+     * @param inst
+     * @return the element whose value is the first one pushed by the code of the instruction, if there is one
+     */
+    private static Optional<Element> getFirstLoaded(Instruction inst) {
+        if (inst instanceof AssignInstruction assign) {
+            // array stores start by loading the array
+            return assign.getDest() instanceof ArrayOperand ? Optional.empty() : getFirstLoaded(assign.getRhs());
+        }
+
+        if (inst instanceof SingleOpInstruction singleOp) {
+            return Optional.of(singleOp.getSingleOperand());
+        }
+
+        if (inst instanceof UnaryOpInstruction unaryOp) {
+            return Optional.of(unaryOp.getOperand());
+        }
+
+        if (inst instanceof BinaryOpInstruction binaryOp) {
+            // comparisons against 0 only load the other operand
+            if (isComparison(binaryOp.getOperation().getOpType()) && isZero(binaryOp.getLeftOperand())
+                    && !isZero(binaryOp.getRightOperand())) {
+                return Optional.of(binaryOp.getRightOperand());
+            }
+            return Optional.of(binaryOp.getLeftOperand());
+        }
+
+        if (inst instanceof OpCondInstruction opCond) {
+            return getFirstLoaded(opCond.getCondition());
+        }
+
+        if (inst instanceof SingleOpCondInstruction singleOpCond) {
+            return getFirstLoaded(singleOpCond.getCondition());
+        }
+
+        if (inst instanceof ReturnInstruction returnInst) {
+            return Optional.ofNullable(returnInst.getOperand());
+        }
+
+        if (inst instanceof FieldInstruction fieldInst) {
+            return Optional.of(fieldInst.getObject());
+        }
+
+        if (inst instanceof CallInstruction call) {
+            return switch (call.getInvocationType()) {
+                case invokevirtual, invokespecial, arraylength -> Optional.of(call.getCaller());
+                case invokestatic -> call.getArguments().stream().findFirst();
+                // new arrays load their size, new objects load nothing
+                case NEW -> call.getReturnType().getTypeOfElement() == ElementType.ARRAYREF ?
+                        call.getArguments().stream().findFirst() : Optional.empty();
+                default -> Optional.empty();
+            };
+        }
+
+        return Optional.empty();
+    }
+
     private String generateAssign(AssignInstruction assign) {
         var code = new StringBuilder();
 
@@ -223,18 +380,25 @@ public class JasminGenerator {
                 this.needsPop = false;
             }
         }
-        // generate code for loading what's on the right
-        code.append(generators.apply(assign.getRhs()));
-
         // store value in the stack in destination
         var lhs = assign.getDest();
 
+        // generate code for loading what's on the right, array stores load it after the reference and the index
+        if (!(lhs instanceof ArrayOperand)) {
+            code.append(generators.apply(assign.getRhs()));
+        }
+
         if (!(lhs instanceof Operand)) {
             throw new NotImplementedException(lhs.getClass());
         }
 
         var operand = (Operand) lhs;
 
+        // the value stays on the stack for the next instruction
+        if (stackified.contains(operand.getName())) {
+            return code.toString();
+        }
+
         /*
         // check if we have an expression like i = i + const
         var rhs = assign.getRhs();
@@ -301,7 +465,7 @@ public class JasminGenerator {
 
         code.append(array).append(command).append(NL);
 
-        updateStack(-1);
+        updateStack(lhs instanceof ArrayOperand ? -3 : -1);
 
         return code.toString();
     }
@@ -334,6 +498,11 @@ public class JasminGenerator {
     }
 
     private String generateOperand(Operand operand) {
+        // the value was left on the stack by the previous instruction
+        if (stackified.contains(operand.getName())) {
+            return "";
+        }
+
         // get register
         var reg_number = currentMethod.getVarTable().get(operand.getName()).getVirtualReg();
         var reg = reg_number < 4 ? "_" + reg_number : " " + reg_number;
@@ -365,6 +534,23 @@ public class JasminGenerator {
 
         // check if we have a less than or greater than
 
+        // comparisons used as values push 1 if they hold and 0 otherwise
+        if (isComparison(oper)) {
+            var trueLabel = "cmpTrue_" + labelCounter;
+            var endLabel = "cmpEnd_" + labelCounter++;
+
+            code.append(generateCompareJump(binaryOp, trueLabel));
+            code.append("iconst_0").append(NL);
+            code.append("goto ").append(endLabel).append(NL);
+            code.append(trueLabel).append(":").append(NL);
+            code.append("iconst_1").append(NL);
+            code.append(endLabel).append(":").append(NL);
+
+            updateStack(1);
+
+            return code.toString();
+        }
+
         // load values on the left and on the right
         code.append(generators.apply(lhs));
         code.append(generators.apply(rhs));
@@ -377,9 +563,6 @@ public class JasminGenerator {
             case SUB -> "isub";
             case DIV -> "idiv";
             case ANDB -> "iand";
-            case NOTB -> "ifeq";
-            case LTH -> "if_icmplt";
-            case GTE -> "if_icmpte";
             default -> throw new NotImplementedException(binaryOp.getOperation().getOpType());
         };
 
@@ -413,6 +596,13 @@ public class JasminGenerator {
         return code.toString();
     }
 
+    private static boolean isComparison(OperationType opType) {
+        return switch (opType) {
+            case LTH, GTE, LTE, GTH, EQ, NEQ -> true;
+            default -> false;
+        };
+    }
+
     private String generateReturn(ReturnInstruction returnInst) {
         var code = new StringBuilder();
 
@@ -572,7 +762,8 @@ public class JasminGenerator {
             var name = callInstruction.getCaller().getType().getTypeOfElement() == ElementType.THIS ?
                     ((ClassType) callInstruction.getCaller().getType()).getName() : this.getImportedClassName(((Operand) callInstruction.getCaller()).getName())
                     + "/" + ((LiteralElement) callInstruction.getMethodName()).getLiteral().replace("\"", "");
-            var invoke = callInstruction.getInvocationType().name() + " " + name + "(" + args + ")" + getTypeSignature(callInstruction.getReturnType());
+            var descriptor = INTRINSIC_DESCRIPTORS.getOrDefault(name, "(" + args + ")" + getTypeSignature(callInstruction.getReturnType()));
+            var invoke = callInstruction.getInvocationType().name() + " " + name + descriptor;
             code.append(loads).append(invoke).append(NL);
 
             current_stack -= callInstruction.getArguments().size(); // remove arguments from stack
@@ -615,58 +806,116 @@ public class JasminGenerator {
         var label = inst.getLabel();
         var cond = inst.getCondition();
 
-        // TODO
-        // determine what branch instruction to use out of
-        // if_acmpeq, if_acmpne, if_icmpeq, if_icmpge, if_icmpgt, if_icmple, if_icmplt, if_icmpne
+        // a negated condition jumps when the operand is false
+        if (cond instanceof UnaryOpInstruction unaryCond) {
+            if (unaryCond.getOperation().getOpType() != OperationType.NOTB) {
+                throw new NotImplementedException(unaryCond.getOperation().getOpType());
+            }
 
-        // for now assume we are doing "<" between integers
-        var lhs = cond.getOperands().get(0);
-        var rhs = cond.getOperands().get(1);
+            code.append(generators.apply(unaryCond.getOperand()));
+            code.append("ifeq ").append(label).append(NL);
+            updateStack(-1);
+            return code.toString();
+        }
 
-        code.append(generators.apply(lhs));
-        code.append(generators.apply(rhs));
+        code.append(generateCompareJump((BinaryOpInstruction) cond, label));
+        return code.toString();
+    }
 
-        //code.append(cond.getOperation().getOpType().name()).append(NL);
+    /**
+     * Generates the code that jumps to the label if the comparison holds. Comparisons against the literal 0 only load
+     * the other operand and use the single operand form of the jump.
+     */
+    private String generateCompareJump(BinaryOpInstruction comparison, String label) {
+        var code = new StringBuilder();
 
-        switch (cond.getOperation().getOpType()){
-            case GTE:
-                code.append("isub").append(NL);
-                code.append("ifge ");
-                break;
-            case LTH:
-                //code.append("LHS: ").append(lhs).append(" RHS: ").append(rhs).append(NL);
-                code.append("isub").append(NL);
-                code.append("iflt ");
-                break;
-            case EQ:
-                code.append("isub").append(NL);
-                code.append("ifeq ");
-                break;
-            case GTH:
-                code.append("isub").append(NL);
-                code.append("ifgt ");
-                break;
-            case LTE:
-                code.append("isub").append(NL);
-                code.append("ifle ");
-            case NEQ:
-                code.append("isub").append(NL);
-                code.append("ifne ");
-                break;
-            default:
-                break;
+        var lhs = comparison.getLeftOperand();
+        var rhs = comparison.getRightOperand();
+        var opType = comparison.getOperation().getOpType();
+
+        if (isZero(rhs)) {
+            code.append(generators.apply(lhs));
+            code.append(getZeroCompareJump(opType)).append(" ").append(label).append(NL);
+            updateStack(-1);
+            return code.toString();
         }
 
-        code.append(label).append(NL);
+        // 0 < x is the same as x > 0
+        if (isZero(lhs)) {
+            code.append(generators.apply(rhs));
+            code.append(getZeroCompareJump(swapOperands(opType))).append(" ").append(label).append(NL);
+            updateStack(-1);
+            return code.toString();
+        }
+
+        code.append(generators.apply(lhs));
+        code.append(generators.apply(rhs));
+        code.append(getCompareJump(opType)).append(" ").append(label).append(NL);
         updateStack(-2);
         return code.toString();
     }
 
+    private static boolean isZero(Element element) {
+        return element instanceof LiteralElement literal && literal.getLiteral().equals("0");
+    }
+
+    /**
+     * @param opType
+     * @return the comparison that holds for the operands in the opposite order
+     */
+    private static OperationType swapOperands(OperationType opType) {
+        return switch (opType) {
+            case LTH -> OperationType.GTH;
+            case GTH -> OperationType.LTH;
+            case LTE -> OperationType.GTE;
+            case GTE -> OperationType.LTE;
+            default -> opType;
+        };
+    }
+
+    /**
+     * @param opType
+     * @return the instruction that compares the two integers on top of the stack and jumps if the comparison holds
+     */
+    private static String getCompareJump(OperationType opType) {
+        return switch (opType) {
+            case LTH -> "if_icmplt";
+            case GTE -> "if_icmpge";
+            case LTE -> "if_icmple";
+            case GTH -> "if_icmpgt";
+            case EQ -> "if_icmpeq";
+            case NEQ -> "if_icmpne";
+            default -> throw new NotImplementedException(opType);
+        };
+    }
+
+    /**
+     * @param opType
+     * @return the instruction that compares the integer on top of the stack with 0 and jumps if the comparison holds
+     */
+    private static String getZeroCompareJump(OperationType opType) {
+        return switch (opType) {
+            case LTH -> "iflt";
+            case GTE -> "ifge";
+            case LTE -> "ifle";
+            case GTH -> "ifgt";
+            case EQ -> "ifeq";
+            case NEQ -> "ifne";
+            default -> throw new NotImplementedException(opType);
+        };
+    }
+
     private String generateSingleOpCond(SingleOpCondInstruction singleOpCondInstruction){
         // generate code like: "iflt label"
         // add the condition to the stack
 
         var condition = singleOpCondInstruction.getCondition();
+
+        // a constant condition either always jumps or never does
+        if (condition.getSingleOperand() instanceof LiteralElement literal) {
+            return literal.getLiteral().equals("0") ? "" : "goto " + singleOpCondInstruction.getLabel() + NL;
+        }
+
         var code = generators.apply(condition);
 
         StringBuilder res = new StringBuilder();
@@ -3,18 +3,49 @@ package pt.up.fe.comp2024.optimization;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.ollir.JmmOptimization;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.comp2024.optimization.visitors.AlgebraicSimplification;
+import pt.up.fe.comp2024.optimization.visitors.ArrayShapeAnalysis;
 import pt.up.fe.comp2024.optimization.visitors.ConstantFolding;
+import pt.up.fe.comp2024.optimization.visitors.DeadCallElimination;
+import pt.up.fe.comp2024.optimization.visitors.FieldPromotion;
+import pt.up.fe.comp2024.optimization.visitors.LoopIdiomRecognition;
+import pt.up.fe.comp2024.optimization.visitors.MethodInlining;
+import pt.up.fe.comp2024.optimization.visitors.MethodSummaryAnalysis;
+import pt.up.fe.comp2024.optimization.visitors.TailRecursion;
+import pt.up.fe.comp2024.optimization.visitors.ValueRangeAnalysis;
+import pt.up.fe.comp2024.optimization.visitors.VarargsArrayHoisting;
 import pt.up.fe.comp2024.optimization.visitors.ConstantPropagation.ConstantPropagation;
+import pt.up.fe.comp2024.optimization.visitors.ConstantPropagation.InterproceduralConstantPropagation;
 import pt.up.fe.comp2024.optimization.visitors.ConstantPropagation.VariableInfoGeneratorVisitor;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class JmmOptimizationImpl implements JmmOptimization {
 
     @Override
     public OllirResult toOllir(JmmSemanticsResult semanticsResult) {
+        return toOllir(semanticsResult, new OllirGeneratorVisitor(semanticsResult.getSymbolTable(),
+                CompilerConfig.getOptimize(semanticsResult.getConfig())));
+    }
+
+    /**
+     * Generates the OLLIR code reusing the code of the methods in the map, and adds the code of the other methods to
+     * it.
+     */
+    public OllirResult toOllir(JmmSemanticsResult semanticsResult, Map<String, String> methodCodes) {
+        return toOllir(semanticsResult, new OllirGeneratorVisitor(semanticsResult.getSymbolTable(), methodCodes,
+                CompilerConfig.getOptimize(semanticsResult.getConfig())));
+    }
+
+    private OllirResult toOllir(JmmSemanticsResult semanticsResult, OllirGeneratorVisitor visitor) {
 
-        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
         var ollirCode = visitor.visit(semanticsResult.getRootNode());
 
         // print result
@@ -42,8 +73,21 @@ public class JmmOptimizationImpl implements JmmOptimization {
             return semanticsResult;
         }
 
+        var table = (JmmSymbolTable) semanticsResult.getSymbolTable();
+        Map<String, Integer> ruleHits = new LinkedHashMap<>();
+
         for(int i = 0; i < 100; i++){
 
+            // the side effects of each method, used to remove and move calls
+            var methodSummaryAnalysis = new MethodSummaryAnalysis(table);
+            methodSummaryAnalysis.visit(semanticsResult.getRootNode());
+
+            var deadCallElimination = new DeadCallElimination(table);
+            deadCallElimination.visit(semanticsResult.getRootNode());
+
+            var methodInlining = new MethodInlining(semanticsResult.getSymbolTable());
+            methodInlining.visit(semanticsResult.getRootNode());
+
             // add info to AST
             var vis = new VariableInfoGeneratorVisitor();
             vis.visit(semanticsResult.getRootNode());
@@ -51,14 +95,53 @@ public class JmmOptimizationImpl implements JmmOptimization {
             var constantPropagation = new ConstantPropagation();
             constantPropagation.visit(semanticsResult.getRootNode());
 
+            var interproceduralPropagation = new InterproceduralConstantPropagation(table);
+            interproceduralPropagation.visit(semanticsResult.getRootNode());
+
             var constantFold = new ConstantFolding();
             constantFold.visit(semanticsResult.getRootNode());
 
-            if(!constantPropagation.changed && !constantFold.changed){
+            var arrayShapeAnalysis = new ArrayShapeAnalysis();
+            arrayShapeAnalysis.visit(semanticsResult.getRootNode());
+
+            var valueRangeAnalysis = new ValueRangeAnalysis();
+            valueRangeAnalysis.visit(semanticsResult.getRootNode());
+
+            var algebraicSimplification = new AlgebraicSimplification();
+            algebraicSimplification.visit(semanticsResult.getRootNode());
+            algebraicSimplification.getRuleHits().forEach((rule, hits) -> ruleHits.merge(rule, hits, Integer::sum));
+
+            if(!deadCallElimination.changed && !methodInlining.changed && !constantPropagation.changed
+                    && !interproceduralPropagation.changed && !constantFold.changed
+                    && !arrayShapeAnalysis.changed && !valueRangeAnalysis.changed
+                    && !algebraicSimplification.changed){
                 break;
             }
         }
 
+        // the hits are a log of the compilation, not part of what it prints
+        if (!ruleHits.isEmpty()) {
+            var reports = new ArrayList<>(semanticsResult.getReports());
+            reports.add(Report.newLog(Stage.OPTIMIZATION, -1, -1, "Algebraic simplification rule hits: " + ruleHits,
+                    null));
+            semanticsResult = new JmmSemanticsResult(semanticsResult.getRootNode(), semanticsResult.getSymbolTable(),
+                    reports, semanticsResult.getConfig());
+        }
+
+        // promote the fields used in loops and hoist varargs arrays once the summaries of the methods are known
+        var fieldPromotion = new FieldPromotion(table);
+        fieldPromotion.visit(semanticsResult.getRootNode());
+
+        var varargsArrayHoisting = new VarargsArrayHoisting(table);
+        varargsArrayHoisting.visit(semanticsResult.getRootNode());
+
+        // mark the tail calls and the loop idioms only once the AST is in its final form
+        var tailRecursion = new TailRecursion(semanticsResult.getSymbolTable());
+        tailRecursion.visit(semanticsResult.getRootNode());
+
+        var loopIdiomRecognition = new LoopIdiomRecognition(semanticsResult.getSymbolTable());
+        loopIdiomRecognition.visit(semanticsResult.getRootNode());
+
         System.out.println("Optimized AST");
         System.out.println(semanticsResult.getRootNode().toTree());
 
@@ -30,8 +30,15 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
 
     private final SymbolTable table;
 
-    public OllirExprGeneratorVisitor(SymbolTable table) {
+    private final OllirNames names;
+
+    // conditions are compiled into jumps with -o, instead of being computed and tested
+    private final boolean optimize;
+
+    public OllirExprGeneratorVisitor(SymbolTable table, OllirNames names, boolean optimize) {
         this.table = table;
+        this.names = names;
+        this.optimize = optimize;
     }
 
     @Override
@@ -74,7 +81,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         String ollirType = OptUtils.toOllirType(type);
 
         // get a temp variable
-        String tempVar = OptUtils.getTemp();
+        String tempVar = names.getTemp();
 
         // add the instruction
         computation.append(tempVar).append(ollirType).append(SPACE);
@@ -120,7 +127,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         String arrayType = ".array" + ollirType;
 
         // create the array
-        String arrayVar = OptUtils.getTemp("tmparray");
+        String arrayVar = names.getTemp("tmparray");
         computation.append(arrayVar).append(arrayType);
         computation.append(SPACE);
         computation.append(ASSIGN).append(arrayType);
@@ -149,7 +156,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         StringBuilder code = new StringBuilder();
 
         // get temp variable
-        String tempVar = OptUtils.getTemp();
+        String tempVar = names.getTemp();
 
         // extract expressions
         var arrayExpr = node.getJmmChild(0);
@@ -192,7 +199,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         computation.append(arrayResult.getComputation());
 
         // add instruction : tmp.i32 :=.i32 arraylength(arrayResult.code).i32;
-        String tempVar = OptUtils.getTemp();
+        String tempVar = names.getTemp();
         computation.append(tempVar).append(".i32").append(SPACE).append(ASSIGN).append(".i32").append(SPACE)
                 .append("arraylength(").append(arrayResult.getCode()).append(").i32").append(END_STMT);
 
@@ -217,7 +224,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         computation.append(sizeResult.getComputation());
 
         // get temp variable
-        String tempVar = OptUtils.getTemp();
+        String tempVar = names.getTemp();
         String ollirType = OptUtils.toOllirType(type);
 
         // create the array with intruction : tmp.array.type :=.array.type new(array,size.i32).array.type
@@ -357,7 +364,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         String actualCode = "";
         // if the return type is not void we need to create a temp variable
         if (!ollirReturnType.equals(".V")){
-            var tempVar = OptUtils.getTemp();
+            var tempVar = names.getTemp();
             actualCode = tempVar + ollirReturnType;
             code.append(tempVar).append(ollirReturnType).append(SPACE).append(ASSIGN).append(ollirReturnType).append(SPACE);
         }
@@ -436,7 +443,8 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
     private OllirExprResult visitBinExpr(JmmNode node, Void unused) {
 
         var parent = node.getParent();
-        boolean assignTempVariable = !(ASSIGN_STMT.check(parent));
+        // putfield only takes simple operands, so fields are assigned from a temp variable
+        boolean assignTempVariable = !(ASSIGN_STMT.check(parent)) || isFieldAssign(parent);
 
         String op = node.get("op");
         var opRtrnType = TypeUtils.getOperatorReturnType(op);
@@ -456,15 +464,22 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
 
         StringBuilder computation = new StringBuilder();
 
-        // code to compute the children
-        computation.append(lhs_result.getComputation());
-        computation.append(rhs_result.getComputation());
+        // code to compute the children, starting by the one that needs more temporaries. The left operand is then
+        // computed just before it is loaded, so the backend leaves it on the stack instead of storing it. The order can
+        // only change if neither of them has side effects
+        if (getTempNeed(rhs) > getTempNeed(lhs) && NodeUtils.isSideEffectFree(lhs) && NodeUtils.isSideEffectFree(rhs)) {
+            computation.append(rhs_result.getComputation());
+            computation.append(lhs_result.getComputation());
+        } else {
+            computation.append(lhs_result.getComputation());
+            computation.append(rhs_result.getComputation());
+        }
 
         // code to compute self
         String resOllirType = OptUtils.toOllirType(opRtrnType);
         String code;
         if(assignTempVariable) {
-            code = OptUtils.getTemp() + resOllirType;
+            code = names.getTemp() + resOllirType;
 
             computation.append(code).append(SPACE)
                     .append(ASSIGN).append(resOllirType).append(SPACE)
@@ -480,15 +495,89 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         return new OllirExprResult(code, computation);
     }
 
+    private boolean isFieldAssign(JmmNode assignStmt) {
+        var target = TypeUtils.getVarRefType(assignStmt.get("name"), table, assignStmt.getAncestor(METHOD_DECL));
+        return target != null && target.b.equals("field");
+    }
+
+    /**
+     * Computes the Sethi-Ullman number of the expression, i.e. the number of temporaries that must be alive at the same
+     * time to compute it when the operands of binary expressions are evaluated in the best order.
+     *
+     * @param node
+     * @return the number of temporaries needed to compute the expression
+     */
+    private static int getTempNeed(JmmNode node) {
+        if (PAREN_EXPR.check(node)) {
+            return getTempNeed(node.getJmmChild(0));
+        }
+
+        // literals and variables are used directly as operands
+        if (node.getNumChildren() == 0) {
+            return 0;
+        }
+
+        if (BINARY_EXPR.check(node)) {
+            var lhsNeed = getTempNeed(node.getJmmChild(0));
+            var rhsNeed = getTempNeed(node.getJmmChild(1));
+
+            // the result of the operand computed first is kept while computing the other one
+            return Math.max(1, lhsNeed == rhsNeed ? lhsNeed + 1 : Math.max(lhsNeed, rhsNeed));
+        }
+
+        var need = 0;
+        for (var child : node.getChildren()) {
+            need = Math.max(need, getTempNeed(child));
+        }
+        return need + 1;
+    }
+
     private OllirExprResult visitShortCircuitAnd(JmmNode node) {
+        if (!optimize) {
+            return visitEvaluatedAnd(node);
+        }
+
         StringBuilder computation = new StringBuilder();
-        StringBuilder code = new StringBuilder();
 
-        var lhs = node.getJmmChild(0);
-        var rhs = node.getJmmChild(1);
+        // structure of a short circuit and
+        // jump to false_label if the condition is false
+        // res = true
+        // goto end_label
+        // false_label:
+        // res = false
+        // end_label:
 
-        var lhs_result = visit(lhs);
-        var rhs_result = visit(rhs);
+        // create labels
+        String falseLabel = names.getLabel("false");
+        String endLabel = names.getLabel("end");
+
+        // get res variable
+        String resVar = names.getTemp() + ".bool";
+
+        computation.append(generateCondJump(node, false, falseLabel));
+
+        // res = true
+        computation.append(resVar).append(SPACE).append(ASSIGN).append(".bool").append(SPACE).append("1.bool").append(END_STMT);
+
+        // goto end_label
+        computation.append("goto ").append(endLabel).append(END_STMT);
+
+        // false_label:
+        computation.append(falseLabel).append(":").append(NEW_LINE);
+
+        // res = false
+        computation.append(resVar).append(SPACE).append(ASSIGN).append(".bool").append(SPACE).append("0.bool").append(END_STMT);
+
+        // end_label:
+        computation.append(endLabel).append(":").append(NEW_LINE);
+
+        return new OllirExprResult(resVar, computation.toString());
+    }
+
+    private OllirExprResult visitEvaluatedAnd(JmmNode node) {
+        StringBuilder computation = new StringBuilder();
+
+        var lhsResult = visit(node.getJmmChild(0));
 
         // structure of a short circuit and
         // compute lhs
@@ -501,17 +590,17 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         // end_label:
 
         // create labels
-        String trueLabel = OptUtils.getLabel("true");
-        String endLabel = OptUtils.getLabel("end");
+        String trueLabel = names.getLabel("true");
+        String endLabel = names.getLabel("end");
 
         // get res variable
-        String resVar = OptUtils.getTemp() + ".bool";
+        String resVar = names.getTemp() + ".bool";
 
         // compute lhs
-        computation.append(lhs_result.getComputation());
+        computation.append(lhsResult.getComputation());
 
         // if lhs goto true_label
-        computation.append("if (").append(lhs_result.getCode()).append(") goto ").append(trueLabel).append(END_STMT);
+        computation.append("if (").append(lhsResult.getCode()).append(") goto ").append(trueLabel).append(END_STMT);
 
         // res = false
         computation.append(resVar).append(SPACE).append(ASSIGN).append(".bool").append(SPACE).append("0.bool").append(END_STMT);
@@ -522,17 +611,102 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         // true_label:
         computation.append(trueLabel).append(":").append(NEW_LINE);
 
-        // compute rhs
-        computation.append(rhs_result.getComputation());
+        // compute rhs, only once lhs is true
+        var rhsResult = visit(node.getJmmChild(1));
+        computation.append(rhsResult.getComputation());
 
         // res = rhs
-        computation.append(resVar).append(SPACE).append(ASSIGN).append(".bool").append(SPACE).append(rhs_result.getCode()).append(END_STMT);
+        computation.append(resVar).append(SPACE).append(ASSIGN).append(".bool").append(SPACE).append(rhsResult.getCode()).append(END_STMT);
 
         // end_label:
         computation.append(endLabel).append(":").append(NEW_LINE);
 
-        code.append(resVar);
-        return new OllirExprResult(code.toString(), computation.toString());
+        return new OllirExprResult(resVar, computation.toString());
+    }
+
+    /**
+     * Generates the code of a condition that jumps to the target when the condition has the given value, and falls
+     * through otherwise. With -o, the comparisons, conjunctions and negations inside the condition become jumps,
+     * instead of being computed into boolean temporaries that are tested afterwards.
+     *
+     * @param node     the condition
+     * @param jumpWhen the value of the condition for which the jump is taken
+     * @param target   the label to jump to
+     * @return the OLLIR code of the jump
+     */
+    public String generateCondJump(JmmNode node, boolean jumpWhen, String target) {
+        StringBuilder code = new StringBuilder();
+
+        if (!optimize) {
+            return generateValueTest(node, jumpWhen, target);
+        }
+
+        if (PAREN_EXPR.check(node)) {
+            return generateCondJump(node.getJmmChild(0), jumpWhen, target);
+        }
+
+        // !a jumps when a has the opposite value
+        if (UNARY_EXPR.check(node)) {
+            return generateCondJump(node.getJmmChild(0), !jumpWhen, target);
+        }
+
+        if (BOOL_LITERAL.check(node)) {
+            if (Boolean.parseBoolean(node.get("value")) == jumpWhen) {
+                code.append("goto ").append(target).append(END_STMT);
+            }
+            return code.toString();
+        }
+
+        if (BINARY_EXPR.check(node) && node.get("op").equals("&&")) {
+            var lhs = node.getJmmChild(0);
+            var rhs = node.getJmmChild(1);
+
+            if (jumpWhen) {
+                // a && b is true if a is true and then b is true
+                var nextLabel = names.getLabel("next");
+                code.append(generateCondJump(lhs, false, nextLabel));
+                code.append(generateCondJump(rhs, true, target));
+                code.append(nextLabel).append(":").append(NEW_LINE);
+            } else {
+                // a && b is false as soon as one of them is false
+                code.append(generateCondJump(lhs, false, target));
+                code.append(generateCondJump(rhs, false, target));
+            }
+            return code.toString();
+        }
+
+        if (BINARY_EXPR.check(node) && node.get("op").equals("<")) {
+            var lhsResult = visit(node.getJmmChild(0));
+            var rhsResult = visit(node.getJmmChild(1));
+            code.append(lhsResult.getComputation());
+            code.append(rhsResult.getComputation());
+
+            var op = jumpWhen ? "<" : ">=";
+            code.append("if (").append(lhsResult.getCode()).append(SPACE).append(op).append(".bool").append(SPACE)
+                    .append(rhsResult.getCode()).append(") goto ").append(target).append(END_STMT);
+            return code.toString();
+        }
+
+        // any other boolean value is computed and then tested
+        return generateValueTest(node, jumpWhen, target);
+    }
+
+    /**
+     * Generates the code that computes the value of the condition and then jumps to the target if it has the given
+     * value.
+     */
+    private String generateValueTest(JmmNode node, boolean jumpWhen, String target) {
+        StringBuilder code = new StringBuilder();
+
+        var result = visit(node);
+        code.append(result.getComputation());
+        code.append("if (");
+        if (!jumpWhen) {
+            code.append("!.bool ");
+        }
+        code.append(result.getCode()).append(") goto ").append(target).append(END_STMT);
+
+        return code.toString();
     }
 
     private OllirExprResult visitVarRef(JmmNode node, Void unused) {
@@ -558,7 +732,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         if (scope.equals("field")){
             // tmp1 := getfield(this,[nameOfField].[typeOfField]).typeOfField,
 
-            var tmpVar = OptUtils.getTemp() + ollirType;
+            var tmpVar = names.getTemp() + ollirType;
             String computation = tmpVar +" :="+ollirType +" getfield(this."+
                     table.getClassName() +"," + var + ")" + ollirType + END_STMT;
 
@@ -599,7 +773,7 @@ public class OllirExprGeneratorVisitor extends AJmmVisitor<Void, OllirExprResult
         String type = "." + className;
 
         // create a tmp variable to store the new object
-        String nt = OptUtils.getTemp() + type;
+        String nt = names.getTemp() + type;
         computation.append(nt).append(SPACE).append(ASSIGN).append(type)
                 .append(SPACE).append("new(").append(className).append(")").append(type).append(END_STMT);
 
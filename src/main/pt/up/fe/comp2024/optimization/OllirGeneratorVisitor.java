@@ -6,8 +6,12 @@ import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2024.ast.NodeUtils;
 import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.optimization.visitors.LoopIdiomRecognition;
+import pt.up.fe.comp2024.optimization.visitors.TailRecursion;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Map;
 
 import static pt.up.fe.comp2024.ast.Kind.*;
 
@@ -29,11 +33,32 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private final SymbolTable table;
 
+    private final OllirNames names;
+
     private final OllirExprGeneratorVisitor exprVisitor;
 
-    public OllirGeneratorVisitor(SymbolTable table) {
+    // code of each method by name, reused instead of generating the method, or null to generate every method
+    private final Map<String, String> methodCodes;
+
+    // label at the start of the current method, target of the tail calls
+    private String entryLabel;
+
+    // conditions are compiled into jumps with -o, instead of being computed and tested
+    private final boolean optimize;
+
+    public OllirGeneratorVisitor(SymbolTable table, boolean optimize) {
+        this(table, null, optimize);
+    }
+
+    /**
+     * @param methodCodes the code of the methods that did not change, which gets the code of every other method
+     */
+    public OllirGeneratorVisitor(SymbolTable table, Map<String, String> methodCodes, boolean optimize) {
         this.table = table;
-        exprVisitor = new OllirExprGeneratorVisitor(table);
+        this.names = new OllirNames();
+        this.methodCodes = methodCodes;
+        this.optimize = optimize;
+        exprVisitor = new OllirExprGeneratorVisitor(table, names, optimize);
     }
 
     @Override
@@ -92,7 +117,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
         if (scope.equals("field")) {
             // create tmp var
-            target = OptUtils.getTemp();
+            target = names.getTemp();
             // assign field to tmp
             code.append(target).append(targetType)
                     .append(SPACE).append(ASSIGN).append(targetType).append(SPACE)
@@ -115,15 +140,18 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         while_start:
         code to compute stmt
         condLabel:
-        code to compute condition
-        if condition.code goto while_start;
+        jump to while_start if the condition is true
          */
 
+        if (whileStmt.hasAttribute(LoopIdiomRecognition.IDIOM)) {
+            return visitLoopIdiom(whileStmt);
+        }
+
         StringBuilder code = new StringBuilder();
 
         // get labels
-        var condLabel = OptUtils.getLabel("cond");
-        var stmtLabel = OptUtils.getLabel("whileBody");
+        var condLabel = names.getLabel("cond");
+        var stmtLabel = names.getLabel("whileBody");
 
         // extract nodes
         var conditionNode = whileStmt.getJmmChild(0); // expr
@@ -147,12 +175,67 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         code.append(NL);
 
         // add condition
-        var condition = exprVisitor.visit(conditionNode);
-        code.append(condition.getComputation());
-        code.append("if").append(SPACE).append(L_PAREN); //if (
-        code.append(condition.getCode()); // condition.code
-        code.append(R_PAREN).append(SPACE).append("goto").append(SPACE); // ) goto
-        code.append(stmtLabel).append(END_STMT); // while_start;
+        code.append(exprVisitor.generateCondJump(conditionNode, true, stmtLabel));
+
+        return code.toString();
+    }
+
+    private String visitLoopIdiom(JmmNode whileStmt) {
+        /*
+        Structure:
+        jump to endLabel if the condition is false
+        invokestatic(Arrays, "fill", a, i, n, v).V;  or  invokestatic(System, "arraycopy", b, i, a, i, n - i).V;
+        i := n;
+        endLabel:
+         */
+
+        StringBuilder code = new StringBuilder();
+
+        var endLabel = names.getLabel("end");
+
+        // extract nodes
+        var conditionNode = whileStmt.getJmmChild(0);
+        var indexNode = conditionNode.getJmmChild(0);
+        var boundNode = conditionNode.getJmmChild(1);
+        var arrayAssign = whileStmt.getJmmChild(1).getJmmChild(0);
+        var valueNode = arrayAssign.getJmmChild(1);
+
+        var intType = OptUtils.toOllirType(new Type(TypeUtils.getIntTypeName(), false));
+        var arrayType = OptUtils.toOllirType(new Type(TypeUtils.getIntTypeName(), true));
+        var index = exprVisitor.visit(indexNode).getCode();
+        var array = arrayAssign.get("name") + arrayType;
+
+        // the loop only runs if the condition holds at the start
+        code.append(exprVisitor.generateCondJump(conditionNode, false, endLabel));
+
+        var bound = exprVisitor.visit(boundNode);
+        code.append(bound.getComputation());
+
+        if (whileStmt.get(LoopIdiomRecognition.IDIOM).equals(LoopIdiomRecognition.FILL)) {
+            var value = exprVisitor.visit(valueNode);
+            code.append(value.getComputation());
+
+            code.append("invokestatic(Arrays, \"fill\", ").append(array).append(", ").append(index).append(", ")
+                    .append(bound.getCode()).append(", ").append(value.getCode()).append(").V").append(END_STMT);
+        } else {
+            var source = exprVisitor.visit(valueNode.getJmmChild(0));
+            code.append(source.getComputation());
+
+            var length = names.getTemp() + intType;
+            code.append(length).append(SPACE).append(ASSIGN).append(intType).append(SPACE)
+                    .append(bound.getCode()).append(SPACE).append("-").append(intType).append(SPACE)
+                    .append(index).append(END_STMT);
+
+            code.append("invokestatic(System, \"arraycopy\", ").append(source.getCode()).append(", ")
+                    .append(index).append(", ").append(array).append(", ").append(index).append(", ")
+                    .append(length).append(").V").append(END_STMT);
+        }
+
+        // the index ends with the value of the bound
+        code.append(index).append(SPACE).append(ASSIGN).append(intType).append(SPACE)
+                .append(bound.getCode()).append(END_STMT);
+
+        code.append(endLabel).append(DOUBLE_DOT).append(NL);
 
         return code.toString();
     }
@@ -173,6 +256,19 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     }
 
     private String visitIfStmt(JmmNode node, Void unused){
+        /*
+        Structure with -o:
+        jump to elseLabel if the condition is false
+        code of then stmt
+        goto endLabel;
+        elseLabel:
+        code of else stmt
+        endLabel:
+
+        Without -o the condition is computed and tested as it is, so the jump goes to thenLabel when it is true and
+        the else stmt comes first
+         */
+
         StringBuilder code = new StringBuilder();
 
         // extract ASY nodes
@@ -180,30 +276,18 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         var thenNode = node.getJmmChild(1); // stmt
         var elseNode = node.getJmmChild(2); // stmt
 
-        // visit them
-        var condition = exprVisitor.visit(conditionNode);
-        var thenRes = visit(thenNode);
-        var elseRes = visit(elseNode);
+        var firstNode = optimize ? thenNode : elseNode;
+        var secondNode = optimize ? elseNode : thenNode;
 
         // get two labels
-        var thenLabel = OptUtils.getLabel();
-        var endLabel = OptUtils.getLabel();
+        var secondLabel = names.getLabel(optimize ? "else" : "then");
+        var endLabel = names.getLabel("endif");
 
-        // add if (cond) goto thenLabel;
-        code.append(condition.getComputation());
-        code.append("if");
-        code.append(SPACE);
-        code.append(L_PAREN);
-        code.append(condition.getCode());
-        code.append(R_PAREN);
-        code.append(SPACE);
-        code.append("goto");
-        code.append(SPACE);
-        code.append(thenLabel);
-        code.append(END_STMT);
+        // add the jump to the second stmt
+        code.append(exprVisitor.generateCondJump(conditionNode, !optimize, secondLabel));
 
-        // add else stmt
-        code.append(elseRes);
+        // add first stmt
+        code.append(visit(firstNode));
 
         // add goto endLabel;
         code.append("goto");
@@ -211,13 +295,13 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         code.append(endLabel);
         code.append(END_STMT);
 
-        // add thenLabel:
-        code.append(thenLabel);
+        // add the label of the second stmt
+        code.append(secondLabel);
         code.append(DOUBLE_DOT);
         code.append(NL);
 
-        // add then stmt
-        code.append(thenRes);
+        // add second stmt
+        code.append(visit(secondNode));
 
         // add end label
         code.append(endLabel);
@@ -274,6 +358,10 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private String visitAssignStmt(JmmNode node, Void unused) {
 
+        if (isTailCall(node.getJmmChild(0))) {
+            return visitTailCall(node.getJmmChild(0));
+        }
+
         // get info
         var targetName = node.get("name");
         var expr = exprVisitor.visit(node.getJmmChild(0));
@@ -291,6 +379,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         var code = new StringBuilder();
 
         if (scope.equals("field")){
+            code.append(expr.getComputation());
             code.append("putfield(this.").append(table.getClassName())
                     .append(", ").append(targetName).append(targetType)
                     .append(", ").append(expr.getCode()).append(").V").append(END_STMT);
@@ -317,6 +406,10 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
         var expr = OllirExprResult.EMPTY;
 
+        if (node.getNumChildren() > 0 && isTailCall(node.getJmmChild(0))) {
+            return visitTailCall(node.getJmmChild(0));
+        }
+
         if (node.getNumChildren() > 0) {
             expr = exprVisitor.visit(node.getJmmChild(0));
         }
@@ -334,6 +427,62 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     }
 
 
+    private boolean isTailCall(JmmNode expr) {
+        return METHOD_CALL_EXPR.check(expr) && expr.hasAttribute(TailRecursion.IS_TAIL_CALL);
+    }
+
+    private String visitTailCall(JmmNode methodCall) {
+        /*
+        Structure:
+        code to compute the arguments
+        param1 := arg1; ... paramN := argN;
+        goto entryLabel;
+         */
+
+        StringBuilder code = new StringBuilder();
+
+        var params = table.getParameters(methodCall.get("name"));
+        var arguments = methodCall.getChildren().subList(1, methodCall.getNumChildren());
+
+        var argumentCodes = new ArrayList<String>();
+        for (var argument : arguments) {
+            var argumentRes = exprVisitor.visit(argument);
+            code.append(argumentRes.getComputation());
+            argumentCodes.add(argumentRes.getCode());
+        }
+
+        // arguments that read a parameter must be saved before the parameters are overwritten
+        for (int i = 0; i < argumentCodes.size(); i++) {
+            var argumentCode = argumentCodes.get(i);
+            var paramType = OptUtils.toOllirType(params.get(i).getType());
+            var readsParam = params.stream()
+                    .anyMatch(param -> argumentCode.equals(param.getName() + OptUtils.toOllirType(param.getType())));
+
+            if (readsParam && !argumentCode.equals(params.get(i).getName() + paramType)) {
+                var temp = names.getTemp() + paramType;
+                code.append(temp).append(SPACE).append(ASSIGN).append(paramType).append(SPACE)
+                        .append(argumentCode).append(END_STMT);
+                argumentCodes.set(i, temp);
+            }
+        }
+
+        for (int i = 0; i < params.size(); i++) {
+            var param = params.get(i).getName() + OptUtils.toOllirType(params.get(i).getType());
+            var paramType = OptUtils.toOllirType(params.get(i).getType());
+
+            if (argumentCodes.get(i).equals(param)) {
+                continue;
+            }
+
+            code.append(param).append(SPACE).append(ASSIGN).append(paramType).append(SPACE)
+                    .append(argumentCodes.get(i)).append(END_STMT);
+        }
+
+        code.append("goto").append(SPACE).append(entryLabel).append(END_STMT);
+
+        return code.toString();
+    }
+
     private String visitParam(JmmNode node, Void unused) {
 
         var typeCode = OptUtils.toOllirType(node.getJmmChild(0));
@@ -354,10 +503,32 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     }
 
     private String visitMethodDecl(JmmNode node, Void unused) {
+        if (methodCodes == null) {
+            return generateMethodDecl(node);
+        }
+
+        var name = node.get("name");
+        var code = methodCodes.get(name);
+        if (code == null) {
+            // the names of each method start from zero, so its code does not depend on the methods before it
+            names.restart();
+            code = generateMethodDecl(node);
+            methodCodes.put(name, code);
+        }
+
+        return code;
+    }
+
+    private String generateMethodDecl(JmmNode node) {
 
         StringBuilder code = new StringBuilder(".method ");
         var name = node.get("name");
 
+        var variables = new ArrayList<String>();
+        table.getParameters(name).forEach(param -> variables.add(param.getName()));
+        table.getLocalVariables(name).forEach(local -> variables.add(local.getName()));
+        names.reserve(variables);
+
         boolean isPublic = node.get("isPublic").equals("true");
 
         if (isPublic) {
@@ -403,6 +574,12 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         code.append(retType);
         code.append(L_BRACKET);
 
+        // tail calls jump back to the start of the method
+        if (node.hasAttribute(TailRecursion.HAS_TAIL_CALLS)) {
+            entryLabel = names.getLabel("entry");
+            code.append(entryLabel).append(DOUBLE_DOT).append(NL);
+        }
+
 
         // rest of its children stmts
         for (int i = afterParam; i < node.getNumChildren(); i++) {
@@ -470,6 +647,24 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
         StringBuilder code = new StringBuilder();
 
+        // the library classes used by the recognized loops
+        var libraryImports = new LinkedHashSet<String>();
+        for (var whileStmt : node.getDescendants(WHILE_STMT)) {
+            var idiom = whileStmt.getOptional(LoopIdiomRecognition.IDIOM);
+            if (idiom.isPresent()) {
+                libraryImports.add(idiom.get().equals(LoopIdiomRecognition.FILL)
+                        ? LoopIdiomRecognition.ARRAYS_CLASS : LoopIdiomRecognition.SYSTEM_CLASS);
+            }
+        }
+        for (var importDecl : node.getChildren(IMPORT_DECL)) {
+            @SuppressWarnings("unchecked")
+            var names = (ArrayList<String>) importDecl.getObject("names");
+            libraryImports.remove(String.join(".", names));
+        }
+        for (var libraryImport : libraryImports) {
+            code.append("import ").append(libraryImport).append(END_STMT);
+        }
+
         node.getChildren().stream()
                 .map(this::visit)
                 .forEach(code::append);
@@ -0,0 +1,67 @@
+package pt.up.fe.comp2024.optimization;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Generates the names of the temporaries and labels of the OLLIR code of one class.
+ * <p>
+ * Each generation has its own numbering, so classes can be compiled concurrently and the same class always gets the
+ * same names. The variables of the program share the namespace of the temporaries in OLLIR, so a temporary never takes
+ * the name of a variable of the method being generated.
+ */
+public class OllirNames {
+
+    private int tempNumber = -1;
+    private int labelNumber = -1;
+    private final Set<String> reserved = new HashSet<>();
+
+    /**
+     * Numbers the next names from the start again, for code that must not depend on the code generated before it.
+     */
+    public void restart() {
+        tempNumber = -1;
+        labelNumber = -1;
+    }
+
+    /**
+     * @param variables the parameters and local variables of the method whose code is generated next
+     */
+    public void reserve(Collection<String> variables) {
+        reserved.clear();
+        reserved.addAll(variables);
+    }
+
+    public String getTemp() {
+        return getTemp("tmp");
+    }
+
+    public String getLabel() {
+        return getLabel("label");
+    }
+
+    public String getLabel(String prefix) {
+        return prefix + getNextLabelNum();
+    }
+
+    public int getNextLabelNum() {
+        labelNumber += 1;
+        return labelNumber;
+    }
+
+    public String getTemp(String prefix) {
+        String name;
+        do {
+            name = prefix + getNextTempNum();
+        } while (reserved.contains(name));
+
+        return name;
+    }
+
+    public int getNextTempNum() {
+
+        tempNumber += 1;
+        return tempNumber;
+    }
+}
@@ -14,36 +14,6 @@ import static pt.up.fe.comp2024.ast.Kind.MAIN_RETURN_TYPE;
 import static pt.up.fe.comp2024.ast.Kind.TYPE;
 
 public class OptUtils {
-    private static int tempNumber = -1;
-    private static int labelNumber = -1;
-
-    public static String getTemp() {
-        return getTemp("tmp");
-    }
-
-    public static String getLabel() {
-        return getLabel("label");
-    }
-
-    public static String getLabel(String prefix) {
-        return prefix + getNextLabelNum();
-    }
-
-    public static int getNextLabelNum() {
-        labelNumber += 1;
-        return labelNumber;
-    }
-
-    public static String getTemp(String prefix) {
-
-        return prefix + getNextTempNum();
-    }
-
-    public static int getNextTempNum() {
-
-        tempNumber += 1;
-        return tempNumber;
-    }
 
     public static String toOllirType(JmmNode typeNode) {
         if (!TYPE.check(typeNode) && !MAIN_RETURN_TYPE.check(typeNode)) {
@@ -0,0 +1,211 @@
+package pt.up.fe.comp2024.optimization.visitors;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.PostorderJmmVisitor;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Applies algebraic identities to expressions whose operands are not all constant, e.g. {@code x*1 -> x}.
+ * <p>
+ * Each rule is a name plus a rewrite that, given a node, either returns the node that replaces it or nothing if the
+ * rule does not apply. The number of times each rule was applied is kept in {@link #getRuleHits()}.
+ */
+public class AlgebraicSimplification extends PostorderJmmVisitor<Void, Void> {
+
+    private record Rule(String name, Kind kind, Function<JmmNode, Optional<JmmNode>> rewrite) {
+    }
+
+    private final List<Rule> rules = List.of(
+            new Rule("x*1", Kind.BINARY_EXPR, node -> isOp(node, "*") && isInt(right(node), 1) ? keep(left(node)) : none()),
+            new Rule("1*x", Kind.BINARY_EXPR, node -> isOp(node, "*") && isInt(left(node), 1) ? keep(right(node)) : none()),
+            new Rule("x/1", Kind.BINARY_EXPR, node -> isOp(node, "/") && isInt(right(node), 1) ? keep(left(node)) : none()),
+            new Rule("x+0", Kind.BINARY_EXPR, node -> isOp(node, "+") && isInt(right(node), 0) ? keep(left(node)) : none()),
+            new Rule("0+x", Kind.BINARY_EXPR, node -> isOp(node, "+") && isInt(left(node), 0) ? keep(right(node)) : none()),
+            new Rule("x-0", Kind.BINARY_EXPR, node -> isOp(node, "-") && isInt(right(node), 0) ? keep(left(node)) : none()),
+            new Rule("x*0", Kind.BINARY_EXPR, node -> isOp(node, "*") && (isInt(right(node), 0) && isPure(left(node))
+                    || isInt(left(node), 0) && isPure(right(node))) ? intLiteral(0) : none()),
+            new Rule("x-x", Kind.BINARY_EXPR, node -> isOp(node, "-") && isPure(left(node))
+                    && isSameExpr(left(node), right(node)) ? intLiteral(0) : none()),
+            new Rule("x<x", Kind.BINARY_EXPR, node -> isOp(node, "<") && isPure(left(node))
+                    && isSameExpr(left(node), right(node)) ? boolLiteral(false) : none()),
+            new Rule("b&&true", Kind.BINARY_EXPR, node -> isOp(node, "&&") && isBool(right(node), true) ? keep(left(node)) : none()),
+            new Rule("true&&b", Kind.BINARY_EXPR, node -> isOp(node, "&&") && isBool(left(node), true) ? keep(right(node)) : none()),
+            new Rule("b&&false", Kind.BINARY_EXPR, node -> isOp(node, "&&") && isBool(right(node), false)
+                    && isPure(left(node)) ? boolLiteral(false) : none()),
+            // the right operand is never evaluated, so it does not need to be pure
+            new Rule("false&&b", Kind.BINARY_EXPR, node -> isOp(node, "&&") && isBool(left(node), false) ? boolLiteral(false) : none()),
+            new Rule("!!b", Kind.UNARY_EXPR, node -> Kind.UNARY_EXPR.check(operand(node)) ? keep(operand(operand(node))) : none()),
+            new Rule("(x+c1)+c2", Kind.BINARY_EXPR, node -> reassociate(node, "+")),
+            new Rule("(x*c1)*c2", Kind.BINARY_EXPR, node -> reassociate(node, "*"))
+    );
+
+    public boolean changed = false;
+
+    private final Map<String, Integer> ruleHits = new LinkedHashMap<>();
+
+    @Override
+    protected void buildVisitor() {
+        addVisit(Kind.BINARY_EXPR, this::visitExpr);
+        addVisit(Kind.UNARY_EXPR, this::visitExpr);
+
+        setDefaultVisit((node, unused) -> null);
+    }
+
+    /**
+     * @return the number of times each rule was applied, by rule name
+     */
+    public Map<String, Integer> getRuleHits() {
+        return ruleHits;
+    }
+
+    private Void visitExpr(JmmNode expr, Void unused) {
+        for (var rule : rules) {
+            if (!rule.kind().check(expr)) {
+                continue;
+            }
+
+            var replacement = rule.rewrite().apply(expr);
+            if (replacement.isEmpty()) {
+                continue;
+            }
+
+            // a node that is still in the tree would be copied without its children
+            var newNode = replacement.get();
+            if (newNode.getParent() != null) {
+                newNode.detach();
+            }
+            expr.replace(newNode);
+
+            ruleHits.merge(rule.name(), 1, Integer::sum);
+            changed = true;
+            return null;
+        }
+
+        return null;
+    }
+
+    private Optional<JmmNode> reassociate(JmmNode node, String op) {
+        var inner = left(node);
+        if (!isOp(node, op) || !Kind.INTEGER_LITERAL.check(right(node))
+                || !Kind.BINARY_EXPR.check(inner) || !isOp(inner, op)) {
+            return none();
+        }
+
+        // the constant of the inner expression can be on either side
+        JmmNode x;
+        JmmNode c1;
+        if (Kind.INTEGER_LITERAL.check(right(inner))) {
+            x = left(inner);
+            c1 = right(inner);
+        } else if (Kind.INTEGER_LITERAL.check(left(inner))) {
+            x = right(inner);
+            c1 = left(inner);
+        } else {
+            return none();
+        }
+
+        // int arithmetic wraps around, so both operations are associative
+        var value1 = Integer.parseInt(c1.get("value"));
+        var value2 = Integer.parseInt(right(node).get("value"));
+        var constant = op.equals("+") ? value1 + value2 : value1 * value2;
+
+        var newExpr = Kind.BINARY_EXPR.createNode();
+        newExpr.put("op", op);
+        x.detach();
+        newExpr.add(x);
+        newExpr.add(intLiteral(constant).get());
+
+        return Optional.of(newExpr);
+    }
+
+    /**
+     * @return the node, looking through any parentheses
+     */
+    private static JmmNode strip(JmmNode node) {
+        while (Kind.PAREN_EXPR.check(node)) {
+            node = node.getChild(0);
+        }
+        return node;
+    }
+
+    private static JmmNode left(JmmNode node) {
+        return strip(node.getChild(0));
+    }
+
+    private static JmmNode right(JmmNode node) {
+        return strip(node.getChild(1));
+    }
+
+    private static JmmNode operand(JmmNode node) {
+        return strip(node.getChild(0));
+    }
+
+    private static boolean isOp(JmmNode node, String op) {
+        return node.get("op").equals(op);
+    }
+
+    private static boolean isInt(JmmNode node, int value) {
+        return Kind.INTEGER_LITERAL.check(node) && Integer.parseInt(node.get("value")) == value;
+    }
+
+    private static boolean isBool(JmmNode node, boolean value) {
+        return Kind.BOOL_LITERAL.check(node) && Boolean.parseBoolean(node.get("value")) == value;
+    }
+
+    private static boolean isPure(JmmNode node) {
+        return NodeUtils.isSideEffectFree(node);
+    }
+
+    /**
+     * Tests if two expressions are structurally equal, ignoring parentheses.
+     */
+    private static boolean isSameExpr(JmmNode expr1, JmmNode expr2) {
+        expr1 = strip(expr1);
+        expr2 = strip(expr2);
+
+        if (!expr1.getKind().equals(expr2.getKind()) || expr1.getNumChildren() != expr2.getNumChildren()) {
+            return false;
+        }
+
+        for (var attribute : List.of("name", "value", "op")) {
+            if (!expr1.getOptional(attribute).equals(expr2.getOptional(attribute))) {
+                return false;
+            }
+        }
+
+        for (int i = 0; i < expr1.getNumChildren(); i++) {
+            if (!isSameExpr(expr1.getChild(i), expr2.getChild(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static Optional<JmmNode> keep(JmmNode node) {
+        return Optional.of(node);
+    }
+
+    private static Optional<JmmNode> none() {
+        return Optional.empty();
+    }
+
+    private static Optional<JmmNode> intLiteral(int value) {
+        var literal = Kind.INTEGER_LITERAL.createNode();
+        literal.put("value", String.valueOf(value));
+        return Optional.of(literal);
+    }
+
+    private static Optional<JmmNode> boolLiteral(boolean value) {
+        var literal = Kind.BOOL_LITERAL.createNode();
+        literal.put("value", String.valueOf(value));
+        return Optional.of(literal);
+    }
+}
@@ -0,0 +1,194 @@
+package pt.up.fe.comp2024.optimization.visitors;
+
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeUtils;
+
+import java.util.Optional;
+
+/**
+ * Tracks the arrays allocated in local variables that are assigned a single time, at the top level of the method.
+ * <p>
+ * When the size of such an array is known, {@code a.length} is replaced by the size. When the array is never
+ * modified nor passed anywhere, accesses with constant indexes are replaced by the initial value of the element.
+ * Allocations whose array is never read are removed, together with the stores into them.
+ */
+public class ArrayShapeAnalysis extends AJmmVisitor<Void, Void> {
+
+    public boolean changed = false;
+
+    @Override
+    protected void buildVisitor() {
+        addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
+        addVisit(Kind.ARRAY_LENGTH_EXPR, this::visitArrayLengthExpr);
+
+        setDefaultVisit(this::visitAllChildren);
+    }
+
+    private Void visitMethodDecl(JmmNode method, Void unused) {
+        for (var varDecl : method.getChildren(Kind.VAR_DECL)) {
+            var name = varDecl.get("name");
+
+            var definitions = method.getDescendants(Kind.ASSIGN_STMT).stream()
+                    .filter(assign -> assign.get("name").equals(name))
+                    .toList();
+            if (definitions.size() != 1 || !Kind.METHOD_DECL.check(definitions.get(0).getParent())) {
+                continue;
+            }
+
+            var definition = definitions.get(0);
+            var size = getSize(definition.getChild(0));
+            if (size.isEmpty()) {
+                continue;
+            }
+
+            foldLength(method, name, size.get());
+            foldConstantAccesses(method, name, definition.getChild(0), size.get());
+            removeDeadAllocation(method, name, definition, size.get());
+        }
+
+        return visitAllChildren(method, unused);
+    }
+
+    /**
+     * Folds the length of arrays allocated in place, e.g. {@code new int[3].length}.
+     */
+    private Void visitArrayLengthExpr(JmmNode arrayLength, Void unused) {
+        visitAllChildren(arrayLength, unused);
+
+        var array = arrayLength.getChild(0);
+        var size = getSize(array);
+        if (size.isPresent() && hasSideEffectFreeElements(array)) {
+            arrayLength.replace(intLiteral(size.get()));
+            changed = true;
+        }
+
+        return null;
+    }
+
+    private void foldLength(JmmNode method, String name, int size) {
+        for (var arrayLength : method.getDescendants(Kind.ARRAY_LENGTH_EXPR)) {
+            if (isVarRef(arrayLength.getChild(0), name)) {
+                arrayLength.replace(intLiteral(size));
+                changed = true;
+            }
+        }
+    }
+
+    private void foldConstantAccesses(JmmNode method, String name, JmmNode allocation, int size) {
+        var isModified = method.getDescendants(Kind.ARRAY_ASSIGN_STMT).stream()
+                .anyMatch(arrayAssign -> arrayAssign.get("name").equals(name));
+
+        // any other use, e.g. as an argument, could let the array be modified elsewhere
+        var escapes = method.getDescendants(Kind.VAR_REF_EXPR).stream()
+                .filter(varRef -> varRef.get("name").equals(name))
+                .anyMatch(varRef -> !Kind.ARRAY_ACCESS_EXPR.check(varRef.getParent()) || varRef.getIndexOfSelf() != 0);
+
+        if (isModified || escapes) {
+            return;
+        }
+
+        for (var arrayAccess : method.getDescendants(Kind.ARRAY_ACCESS_EXPR)) {
+            var index = arrayAccess.getChild(1);
+            if (!isVarRef(arrayAccess.getChild(0), name) || !Kind.INTEGER_LITERAL.check(index)) {
+                continue;
+            }
+
+            // out of bounds accesses must still throw
+            var indexValue = Integer.parseInt(index.get("value"));
+            if (indexValue < 0 || indexValue >= size) {
+                continue;
+            }
+
+            var element = getInitialValue(allocation, indexValue);
+            if (element.isPresent()) {
+                arrayAccess.replace(element.get());
+                changed = true;
+            }
+        }
+    }
+
+    private void removeDeadAllocation(JmmNode method, String name, JmmNode definition, int size) {
+        var isRead = method.getDescendants(Kind.VAR_REF_EXPR).stream()
+                .anyMatch(varRef -> varRef.get("name").equals(name));
+        if (isRead || !hasSideEffectFreeElements(definition.getChild(0))) {
+            return;
+        }
+
+        // the stores can only be removed if they could not throw
+        var stores = method.getDescendants(Kind.ARRAY_ASSIGN_STMT).stream()
+                .filter(arrayAssign -> arrayAssign.get("name").equals(name))
+                .toList();
+        for (var store : stores) {
+            var index = store.getChild(0);
+            if (!Kind.INTEGER_LITERAL.check(index) || Integer.parseInt(index.get("value")) >= size
+                    || Integer.parseInt(index.get("value")) < 0 || !NodeUtils.isSideEffectFree(store.getChild(1))) {
+                return;
+            }
+        }
+
+        for (var store : stores) {
+            removeStmt(store);
+        }
+        definition.detach();
+        changed = true;
+    }
+
+    /**
+     * @param expr
+     * @return the size of the array allocated by the expression, if known
+     */
+    private static Optional<Integer> getSize(JmmNode expr) {
+        if (Kind.ARRAY_CREATION_EXPR.check(expr)) {
+            return Optional.of(expr.getNumChildren());
+        }
+
+        // negative sizes throw
+        if (Kind.NEW_ARRAY_EXPR.check(expr) && Kind.INTEGER_LITERAL.check(expr.getChild(0))) {
+            var size = Integer.parseInt(expr.getChild(0).get("value"));
+            return size >= 0 ? Optional.of(size) : Optional.empty();
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * @return true if the expressions evaluated by the allocation, the elements or the size, have no side effects
+     */
+    private static boolean hasSideEffectFreeElements(JmmNode allocation) {
+        return allocation.getChildren().stream().allMatch(NodeUtils::isSideEffectFree);
+    }
+
+    private static Optional<JmmNode> getInitialValue(JmmNode allocation, int index) {
+        if (Kind.NEW_ARRAY_EXPR.check(allocation)) {
+            return Optional.of(intLiteral(0));
+        }
+
+        var element = allocation.getChild(index);
+        if (Kind.check(element, Kind.INTEGER_LITERAL, Kind.BOOL_LITERAL)) {
+            return Optional.of(element.copy());
+        }
+
+        return Optional.empty();
+    }
+
+    private static void removeStmt(JmmNode stmt) {
+        // an unbraced if or while body must keep a statement
+        if (Kind.check(stmt.getParent(), Kind.IF_STMT, Kind.WHILE_STMT)) {
+            stmt.replace(Kind.BLOCK_STMT.createNode());
+        } else {
+            stmt.detach();
+        }
+    }
+
+    private static boolean isVarRef(JmmNode node, String name) {
+        return Kind.VAR_REF_EXPR.check(node) && node.get("name").equals(name);
+    }
+
+    private static JmmNode intLiteral(int value) {
+        var literal = Kind.INTEGER_LITERAL.createNode();
+        literal.put("value", String.valueOf(value));
+        return literal;
+    }
+}
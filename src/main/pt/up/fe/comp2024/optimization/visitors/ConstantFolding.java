@@ -52,6 +52,12 @@ public class ConstantFolding extends PostorderJmmVisitor<Void, Void> {
             var value1 = Integer.parseInt(child1.get("value"));
             var value2 = Integer.parseInt(child2.get("value"));
             var operator = binaryExpr.get("op");
+
+            // the division by zero is left to throw when the program runs
+            if (operator.equals("/") && value2 == 0) {
+                return null;
+            }
+
             var newValue = calculateValue(value1, value2, operator);
 
             var opRtnType = TypeUtils.getOperatorReturnType(operator);
@@ -95,7 +101,7 @@ public class ConstantFolding extends PostorderJmmVisitor<Void, Void> {
     }
 
     private String calculateValue(boolean value, String operator) {
-        if (operator.equals("not")) {
+        if (operator.equals("!")) {
             return String.valueOf(!value);
         }
         return "";
@@ -45,8 +45,7 @@ public class ConstantPropagation extends AJmmVisitor<Map<String, JmmNode>, Void>
             if (constants.containsKey(var)) {
                 // and if the variable is used inside the if
                 // statement add the assigment back to the AST
-                var assignStmt = constants.get(var);
-                node.insertBefore(assignStmt);
+                restoreAssignment(node, constants.get(var));
                 constants.remove(var);
 
             }
@@ -67,8 +66,7 @@ public class ConstantPropagation extends AJmmVisitor<Map<String, JmmNode>, Void>
         for (var var : changed){
             if (constants.containsKey(var)){
                 // and if the variable is used inside the while loop add the assigment back to the AST
-                var assignStmt = constants.get(var);
-                node.insertBefore(assignStmt);
+                restoreAssignment(node, constants.get(var));
                 constants.remove(var);
             }
         }
@@ -92,14 +90,17 @@ public class ConstantPropagation extends AJmmVisitor<Map<String, JmmNode>, Void>
 
         var varName = assignStmt.get("name");
         var expr = assignStmt.getChild(0);
-        if (Kind.INTEGER_LITERAL.check(expr) || Kind.BOOL_LITERAL.check(expr)){
+        if ((Kind.INTEGER_LITERAL.check(expr) || Kind.BOOL_LITERAL.check(expr)) && isLocal(assignStmt, varName)){
             // add the value to the constantValues map
             // make a copy of the node to avoid changing the original node
 
             constants.put(varName, assignStmt);
 
-            // remove the assignment from the AST
-            assignStmt.detach();
+            // remove the assignment from the AST, unless it is inside a branch or loop,
+            // where it can't be restored before the statement that contains it
+            if (Kind.METHOD_DECL.check(assignStmt.getParent())) {
+                assignStmt.detach();
+            }
 
         } else{ // remove the value from the constantValues map cause it's not a constant anymore
             constants.remove(varName);
@@ -126,5 +127,24 @@ public class ConstantPropagation extends AJmmVisitor<Map<String, JmmNode>, Void>
         return null;
     }
 
+    private void restoreAssignment(JmmNode stmt, JmmNode assignStmt) {
+        // assignments that were not removed are still in the AST
+        if (assignStmt.getParent() == null) {
+            stmt.insertBefore(assignStmt);
+        }
+    }
+
+    /**
+     * Fields can be changed by any method call, so only locals and parameters are propagated.
+     */
+    private boolean isLocal(JmmNode node, String varName) {
+        var method = node.getAncestor(Kind.METHOD_DECL);
+        if (method.isEmpty()) {
+            return false;
+        }
 
+        return method.get().getChildrenStream()
+                .filter(child -> Kind.check(child, Kind.VAR_DECL, Kind.PARAM))
+                .anyMatch(child -> child.get("name").equals(varName));
+    }
 }
@@ -0,0 +1,226 @@
+package pt.up.fe.comp2024.optimization.visitors.ConstantPropagation;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.MethodSummary;
+
+import java.util.*;
+
+/**
+ * Propagates constants across the methods of the class, using the call graph built from the calls to methods of the
+ * class being compiled.
+ * <p>
+ * Only static methods are considered, since an instance method may be overridden by a subclass compiled separately.
+ * A call to a method that always returns the same literal is replaced by that literal. When every call site passes
+ * the same literal for a parameter, the method is specialized for it: the parameter is replaced by the literal in the
+ * body and removed from the signature and from the call sites. The methods written by the user may still be called
+ * from other classes, so they are cloned into a specialized method instead, while the clones made here are
+ * specialized in place. At most {@link #MAX_CLONES} clones are made in a class.
+ */
+public class InterproceduralConstantPropagation {
+
+    // maximum number of nodes of a method that is cloned to be specialized
+    private static final int MAX_CLONE_SIZE = 200;
+
+    // maximum number of specialized clones of the methods of a class
+    private static final int MAX_CLONES = 8;
+
+    // attribute of the clones, with the name of the method they were cloned from
+    private static final String CLONE_OF = "cloneOf";
+
+    public boolean changed = false;
+
+    private final JmmSymbolTable table;
+
+    public InterproceduralConstantPropagation(JmmSymbolTable table) {
+        this.table = table;
+    }
+
+    public void visit(JmmNode root) {
+        var classDecl = root.getChildren(Kind.CLASS_DECL).get(0);
+
+        Map<String, JmmNode> methods = new LinkedHashMap<>();
+        for (var method : classDecl.getChildren(Kind.METHOD_DECL)) {
+            methods.put(method.get("name"), method);
+        }
+
+        var callGraph = buildCallGraph(classDecl, methods);
+
+        for (var method : methods.values()) {
+            var callSites = callGraph.getOrDefault(method.get("name"), Collections.emptyList());
+            if (method.get("name").equals("main") || isVarArgs(method) || callSites.isEmpty()) {
+                continue;
+            }
+
+            propagateReturnValue(method, callSites);
+            specializeParameters(classDecl, method, callSites);
+        }
+    }
+
+    /**
+     * @return the calls to each method of the class, by method name
+     */
+    private Map<String, List<JmmNode>> buildCallGraph(JmmNode classDecl, Map<String, JmmNode> methods) {
+        Map<String, List<JmmNode>> callGraph = new HashMap<>();
+
+        for (var methodCall : classDecl.getDescendants(Kind.METHOD_CALL_EXPR)) {
+            var name = methodCall.get("name");
+            var callee = methods.get(name);
+            if (callee == null || !callee.get("isStatic").equals("true")) {
+                continue;
+            }
+
+            var targetType = TypeUtils.getExprType(methodCall.getChild(0), table);
+            if (targetType == null || targetType.isArray() || !targetType.getName().equals(table.getClassName())) {
+                continue;
+            }
+
+            // the number of arguments only differs from the parameters in varargs calls
+            if (methodCall.getNumChildren() - 1 != callee.getChildren(Kind.PARAM).size()) {
+                continue;
+            }
+
+            callGraph.computeIfAbsent(name, key -> new ArrayList<>()).add(methodCall);
+        }
+
+        return callGraph;
+    }
+
+    private void propagateReturnValue(JmmNode method, List<JmmNode> callSites) {
+        var returnStmt = method.getChildren(Kind.RETURN_STMT);
+        if (returnStmt.size() != 1 || !isLiteral(returnStmt.get(0).getChild(0))) {
+            return;
+        }
+
+        // the call can only be removed if executing the body has no effect other than returning the value
+        var hasNoSideEffects = table.getMethodSummary(method.get("name"))
+                .map(MethodSummary::hasNoSideEffects)
+                .orElse(false);
+        if (!hasNoSideEffects) {
+            return;
+        }
+
+        var value = returnStmt.get(0).getChild(0);
+        for (var methodCall : callSites) {
+            var arguments = methodCall.getChildren().subList(1, methodCall.getNumChildren());
+
+            // a call on an object evaluates the object, which may be null
+            if (!NodeUtils.isStaticClassCall(methodCall, table.getClassName()) || !arguments.stream().allMatch(argument -> NodeUtils.isSideEffectFree(argument, table))
+                    || methodCall.getParent() == null) {
+                continue;
+            }
+
+            if (Kind.EXPR_STMT.check(methodCall.getParent())) {
+                methodCall.getParent().detach();
+            } else {
+                methodCall.replace(value.copy());
+            }
+            changed = true;
+        }
+    }
+
+    private void specializeParameters(JmmNode classDecl, JmmNode method, List<JmmNode> callSites) {
+        // calls that were replaced by their value are no longer in the AST
+        var liveCallSites = callSites.stream().filter(call -> call.getParent() != null).toList();
+        if (liveCallSites.isEmpty()) {
+            return;
+        }
+
+        var params = method.getChildren(Kind.PARAM);
+        Map<Integer, JmmNode> constantParams = new LinkedHashMap<>();
+
+        for (int i = 0; i < params.size(); i++) {
+            var paramName = params.get(i).get("name");
+            var value = liveCallSites.get(0).getChild(i + 1);
+
+            int index = i;
+            var isConstant = liveCallSites.stream()
+                    .map(call -> call.getChild(index + 1))
+                    .allMatch(argument -> isLiteral(argument) && argument.get("value").equals(value.get("value"))
+                            && argument.getKind().equals(value.getKind()));
+            var isAssigned = method.getDescendants(Kind.ASSIGN_STMT).stream()
+                    .anyMatch(assign -> assign.get("name").equals(paramName));
+
+            if (isConstant && !isAssigned) {
+                constantParams.put(i, value);
+            }
+        }
+
+        if (constantParams.isEmpty()) {
+            return;
+        }
+
+        var isClone = method.hasAttribute(CLONE_OF);
+        if (!isClone && (NodeUtils.getSize(method) > MAX_CLONE_SIZE
+                || classDecl.getChildren(Kind.METHOD_DECL).stream().filter(m -> m.hasAttribute(CLONE_OF)).count()
+                >= MAX_CLONES)) {
+            return;
+        }
+
+        // the methods of the user can be called from other classes, so the specialized version is a copy
+        var specialized = isClone ? method : method.copy();
+        var name = isClone ? method.get("name") : getCloneName(method.get("name"));
+        specialized.put("name", name);
+        specialized.putObject("isPublic", false);
+        if (!isClone) {
+            specialized.put(CLONE_OF, method.get("name"));
+        }
+
+        // replace the parameters by their values
+        List<Symbol> newParams = new ArrayList<>(table.getParameters(method.get("name")));
+        var specializedParams = specialized.getChildren(Kind.PARAM);
+        for (var entry : constantParams.entrySet()) {
+            var param = specializedParams.get(entry.getKey());
+            var paramName = param.get("name");
+
+            for (var varRef : specialized.getDescendants(Kind.VAR_REF_EXPR)) {
+                if (varRef.get("name").equals(paramName)) {
+                    varRef.replace(entry.getValue().copy());
+                }
+            }
+
+            param.detach();
+            newParams.removeIf(symbol -> symbol.getName().equals(paramName));
+        }
+
+        table.putMethod(name, table.getReturnType(method.get("name")), newParams,
+                new ArrayList<>(table.getLocalVariables(method.get("name"))));
+
+        if (!isClone) {
+            classDecl.add(specialized);
+        }
+
+        // call the specialized method without the constant arguments
+        for (var methodCall : liveCallSites) {
+            methodCall.put("name", name);
+
+            var arguments = methodCall.getChildren();
+            for (var index : constantParams.keySet()) {
+                arguments.get(index + 1).detach();
+            }
+        }
+
+        changed = true;
+    }
+
+    private String getCloneName(String methodName) {
+        var index = 0;
+        while (table.getMethods().contains(methodName + "_" + index)) {
+            index++;
+        }
+        return methodName + "_" + index;
+    }
+
+    private boolean isVarArgs(JmmNode method) {
+        var params = table.getParameters(method.get("name"));
+        return !params.isEmpty() && (boolean) params.get(params.size() - 1).getType().getObject("isVarArgs");
+    }
+
+    private static boolean isLiteral(JmmNode node) {
+        return Kind.check(node, Kind.INTEGER_LITERAL, Kind.BOOL_LITERAL);
+    }
+}
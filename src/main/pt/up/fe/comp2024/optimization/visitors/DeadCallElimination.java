@@ -0,0 +1,46 @@
+package pt.up.fe.comp2024.optimization.visitors;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.PostorderJmmVisitor;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+
+/**
+ * Removes expression statements whose value is discarded and that have no side effects, according to the method
+ * summaries computed by {@link MethodSummaryAnalysis}.
+ */
+public class DeadCallElimination extends PostorderJmmVisitor<Void, Void> {
+
+    public boolean changed = false;
+
+    private final JmmSymbolTable table;
+
+    public DeadCallElimination(JmmSymbolTable table) {
+        this.table = table;
+    }
+
+    @Override
+    protected void buildVisitor() {
+        addVisit(Kind.EXPR_STMT, this::visitExprStmt);
+
+        setDefaultVisit((node, unused) -> null);
+    }
+
+    private Void visitExprStmt(JmmNode exprStmt, Void unused) {
+        if (!NodeUtils.isSideEffectFree(exprStmt.getChild(0), table)) {
+            return null;
+        }
+
+        // an unbraced if or while body must keep a statement
+        var parent = exprStmt.getParent();
+        if (Kind.check(parent, Kind.IF_STMT, Kind.WHILE_STMT)) {
+            exprStmt.replace(Kind.BLOCK_STMT.createNode());
+        } else {
+            exprStmt.detach();
+        }
+
+        changed = true;
+        return null;
+    }
+}
@@ -0,0 +1,159 @@
+package pt.up.fe.comp2024.optimization.visitors;
+
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.MethodSummary;
+
+import java.util.LinkedHashSet;
+import java.util.Optional;
+
+/**
+ * Promotes the fields used inside a loop to local variables, so that the loop works on a register instead of loading
+ * and storing the field in every iteration.
+ * <p>
+ * The field is copied to the local before the loop and, if the loop assigns it, copied back after the loop. This is
+ * only done when nothing called from the loop can read or write the fields, so the loop may only call static methods
+ * of the class. A field that is assigned in the loop also requires that the loop cannot throw, because the value would
+ * otherwise not be written back.
+ */
+public class FieldPromotion extends AJmmVisitor<Void, Void> {
+
+    private static final String PROMOTED_SUFFIX = "_promoted";
+
+    private final JmmSymbolTable table;
+
+    public FieldPromotion(JmmSymbolTable table) {
+        this.table = table;
+    }
+
+    @Override
+    protected void buildVisitor() {
+        addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
+
+        setDefaultVisit(this::visitAllChildren);
+    }
+
+    private Void visitMethodDecl(JmmNode method, Void unused) {
+        // static methods cannot access the fields
+        if (method.get("isStatic").equals("true")) {
+            return null;
+        }
+
+        for (var whileStmt : method.getDescendants(Kind.WHILE_STMT)) {
+            var parent = whileStmt.getParent();
+            if (!Kind.check(parent, Kind.METHOD_DECL, Kind.BLOCK_STMT) || !hasNoFieldEffects(whileStmt)) {
+                continue;
+            }
+
+            for (var field : getUsedFields(whileStmt, method)) {
+                promote(whileStmt, method, field);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the fields read or assigned inside the loop, in order of appearance
+     */
+    private LinkedHashSet<String> getUsedFields(JmmNode whileStmt, JmmNode method) {
+        var fields = new LinkedHashSet<String>();
+
+        whileStmt.getDescendantsStream()
+                .filter(node -> Kind.check(node, Kind.VAR_REF_EXPR, Kind.ASSIGN_STMT, Kind.ARRAY_ASSIGN_STMT))
+                .map(node -> node.get("name"))
+                .filter(name -> isField(name, method))
+                .forEach(fields::add);
+
+        return fields;
+    }
+
+    private void promote(JmmNode whileStmt, JmmNode method, String field) {
+        var isAssigned = whileStmt.getDescendants(Kind.ASSIGN_STMT).stream()
+                .anyMatch(assign -> assign.get("name").equals(field));
+        if (isAssigned && mayThrow(whileStmt)) {
+            return;
+        }
+
+        var fieldType = TypeUtils.getVarRefType(field, table, Optional.empty()).a;
+        var local = NodeUtils.declareLocal(method, field + PROMOTED_SUFFIX, fieldType, table);
+
+        for (var node : whileStmt.getDescendants()) {
+            if (Kind.check(node, Kind.VAR_REF_EXPR, Kind.ASSIGN_STMT, Kind.ARRAY_ASSIGN_STMT)
+                    && node.get("name").equals(field)) {
+                node.put("name", local);
+            }
+        }
+
+        // local = field; while (...) { ... } field = local;
+        whileStmt.insertBefore(assign(local, varRef(field)));
+        if (isAssigned) {
+            whileStmt.insertAfter(assign(field, varRef(local)));
+        }
+    }
+
+    /**
+     * Checks that the calls inside the loop are static calls to methods of the class that neither use the fields nor
+     * call methods of other classes, which could call back methods of the class.
+     */
+    private boolean hasNoFieldEffects(JmmNode whileStmt) {
+        for (var methodCall : whileStmt.getDescendants(Kind.METHOD_CALL_EXPR)) {
+            var summary = getCalleeSummary(methodCall);
+            if (summary.isEmpty() || summary.get().readsFields() || summary.get().writesFields()
+                    || summary.get().callsImported()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean mayThrow(JmmNode whileStmt) {
+        return whileStmt.getDescendantsStream().anyMatch(node -> {
+            if (Kind.METHOD_CALL_EXPR.check(node)) {
+                return getCalleeSummary(node).map(MethodSummary::mayThrow).orElse(true);
+            }
+
+            if (Kind.BINARY_EXPR.check(node)) {
+                return node.get("op").equals("/");
+            }
+
+            return Kind.check(node, Kind.ARRAY_ACCESS_EXPR, Kind.ARRAY_ASSIGN_STMT, Kind.ARRAY_LENGTH_EXPR,
+                    Kind.NEW_ARRAY_EXPR);
+        });
+    }
+
+    /**
+     * @return the effects of the called method, or empty if they are unknown, e.g. because a subclass compiled
+     * separately may override it
+     */
+    private Optional<MethodSummary> getCalleeSummary(JmmNode methodCall) {
+        if (!NodeUtils.isStaticClassCall(methodCall, table.getClassName())) {
+            return Optional.empty();
+        }
+
+        return table.getMethodSummary(methodCall.get("name"));
+    }
+
+    private boolean isField(String name, JmmNode method) {
+        var var = TypeUtils.getVarRefType(name, table, Optional.of(method));
+        return var != null && var.b.equals("field");
+    }
+
+    private static JmmNode assign(String name, JmmNode value) {
+        var assign = Kind.ASSIGN_STMT.createNode();
+        assign.put("name", name);
+        assign.add(value);
+        return assign;
+    }
+
+    private static JmmNode varRef(String name) {
+        var varRef = Kind.VAR_REF_EXPR.createNode();
+        varRef.put("name", name);
+        return varRef;
+    }
+}
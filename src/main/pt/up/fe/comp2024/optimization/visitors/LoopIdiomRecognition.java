@@ -0,0 +1,249 @@
+package pt.up.fe.comp2024.optimization.visitors;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.ast.TypeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Recognizes loops that fill or copy an array element by element, so that the OLLIR generator can replace them by a
+ * single call to {@code java.util.Arrays.fill} or {@code System.arraycopy}.
+ * <p>
+ * The recognized loops have the form
+ * <pre>
+ * while (i < n) { a[i] = v; i = i + 1; }     // fill
+ * while (i < n) { b[i] = a[i]; i = i + 1; }  // copy
+ * </pre>
+ * where {@code n} and {@code v} do not change inside the loop. Loops that fill an array that was just allocated with
+ * zeros are removed, keeping only the final value of the index, if {@link ValueRangeAnalysis} found that the index is
+ * never negative, since a negative index must still throw.
+ */
+public class LoopIdiomRecognition extends AJmmVisitor<Void, Void> {
+
+    public static final String IDIOM = "idiom";
+    public static final String FILL = "fill";
+    public static final String COPY = "copy";
+
+    public static final String ARRAYS_CLASS = "java.util.Arrays";
+    public static final String SYSTEM_CLASS = "java.lang.System";
+
+    private final SymbolTable table;
+
+    // full names of the imports, to know if the library classes can be referenced by their simple name
+    private final List<String> imports;
+
+    public LoopIdiomRecognition(SymbolTable table) {
+        this.table = table;
+        this.imports = new ArrayList<>();
+    }
+
+    @Override
+    protected void buildVisitor() {
+        addVisit(Kind.IMPORT_DECL, this::visitImportDecl);
+        addVisit(Kind.WHILE_STMT, this::visitWhileStmt);
+
+        setDefaultVisit(this::visitAllChildren);
+    }
+
+    private Void visitImportDecl(JmmNode importDecl, Void unused) {
+        @SuppressWarnings("unchecked")
+        var names = (List<String>) importDecl.getObject("names");
+        imports.add(String.join(".", names));
+
+        return null;
+    }
+
+    private Void visitWhileStmt(JmmNode whileStmt, Void unused) {
+        visitAllChildren(whileStmt, unused);
+
+        var method = whileStmt.getAncestor(Kind.METHOD_DECL);
+        if (method.isEmpty() || !isCanonicalLoop(whileStmt, method.get())) {
+            return null;
+        }
+
+        var index = whileStmt.getChild(0).getChild(0).get("name");
+        var bound = whileStmt.getChild(0).getChild(1);
+        var arrayAssign = whileStmt.getChild(1).getChild(0);
+        var array = arrayAssign.get("name");
+        var value = arrayAssign.getChild(1);
+
+        // the generated call references the destination array directly
+        var arrayVar = TypeUtils.getVarRefType(array, table, method);
+        if (!isIntArray(array, method.get()) || arrayVar.b.equals("field")) {
+            return null;
+        }
+
+        // fill: a[i] = v, with v the same in every iteration
+        if (NodeUtils.isSideEffectFree(value) && !uses(value, index)
+                && isInvariantBound(bound, index, array) && canReference(ARRAYS_CLASS)) {
+
+            if (Kind.INTEGER_LITERAL.check(value) && value.get("value").equals("0")
+                    && arrayAssign.getChild(0).hasAttribute(ValueRangeAnalysis.NON_NEGATIVE_INDEX)
+                    && isFreshArray(whileStmt, array, bound)) {
+                removeZeroFill(whileStmt);
+                return null;
+            }
+
+            whileStmt.put(IDIOM, FILL);
+            return null;
+        }
+
+        // copy: b[i] = a[i]
+        if (Kind.ARRAY_ACCESS_EXPR.check(value) && isVarRef(value.getChild(0)) && isVarRef(value.getChild(1), index)
+                && isIntArray(value.getChild(0).get("name"), method.get())
+                && (isInvariantBound(bound, index, array)
+                || isInvariantBound(bound, index, value.getChild(0).get("name")))
+                && canReference(SYSTEM_CLASS)) {
+
+            whileStmt.put(IDIOM, COPY);
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks that the loop is {@code while (i < n) { a[i] = ...; i = i + 1; }}, with {@code i} a local variable.
+     */
+    private boolean isCanonicalLoop(JmmNode whileStmt, JmmNode method) {
+        var condition = whileStmt.getChild(0);
+        var body = whileStmt.getChild(1);
+
+        if (!Kind.BINARY_EXPR.check(condition) || !condition.get("op").equals("<")
+                || !isVarRef(condition.getChild(0))) {
+            return false;
+        }
+
+        var index = condition.getChild(0).get("name");
+        var indexVar = TypeUtils.getVarRefType(index, table, Optional.of(method));
+        if (indexVar == null || indexVar.b.equals("field")) {
+            return false;
+        }
+
+        if (!Kind.BLOCK_STMT.check(body) || body.getNumChildren() != 2) {
+            return false;
+        }
+
+        var arrayAssign = body.getChild(0);
+        var increment = body.getChild(1);
+
+        if (!Kind.ARRAY_ASSIGN_STMT.check(arrayAssign) || !isVarRef(arrayAssign.getChild(0), index)
+                || arrayAssign.get("name").equals(index)) {
+            return false;
+        }
+
+        if (!Kind.ASSIGN_STMT.check(increment) || !increment.get("name").equals(index)) {
+            return false;
+        }
+
+        var step = increment.getChild(0);
+        return Kind.BINARY_EXPR.check(step) && step.get("op").equals("+")
+                && (isVarRef(step.getChild(0), index) && isIntLiteral(step.getChild(1), 1)
+                || isIntLiteral(step.getChild(0), 1) && isVarRef(step.getChild(1), index));
+    }
+
+    /**
+     * The bound is either the length of the array or an expression that does not change inside the loop.
+     */
+    private static boolean isInvariantBound(JmmNode bound, String index, String array) {
+        if (Kind.ARRAY_LENGTH_EXPR.check(bound)) {
+            return isVarRef(bound.getChild(0)) && bound.getChild(0).get("name").equals(array);
+        }
+
+        return NodeUtils.isSideEffectFree(bound) && !uses(bound, index);
+    }
+
+    /**
+     * Checks if the statements before the loop are {@code a = new int[...];} followed only by assignments to other
+     * local variables, in which case every element of the array is still zero.
+     */
+    private boolean isFreshArray(JmmNode whileStmt, String array, JmmNode bound) {
+        if (!Kind.ARRAY_LENGTH_EXPR.check(bound)) {
+            return false;
+        }
+
+        var method = whileStmt.getAncestor(Kind.METHOD_DECL).get();
+        var stmts = whileStmt.getParent().getChildren();
+        for (int i = whileStmt.getIndexOfSelf() - 1; i >= 0; i--) {
+            var stmt = stmts.get(i);
+            if (!Kind.ASSIGN_STMT.check(stmt)) {
+                return false;
+            }
+
+            if (stmt.get("name").equals(array)) {
+                return Kind.NEW_ARRAY_EXPR.check(stmt.getChild(0));
+            }
+
+            var target = TypeUtils.getVarRefType(stmt.get("name"), table, Optional.of(method));
+            if (target == null || target.b.equals("field") || !NodeUtils.isSideEffectFree(stmt.getChild(0))
+                    || uses(stmt.getChild(0), array)) {
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Replaces the loop by {@code if (i < a.length) { i = a.length; } else {}}.
+     */
+    private static void removeZeroFill(JmmNode whileStmt) {
+        var condition = whileStmt.getChild(0);
+        var index = condition.getChild(0).get("name");
+        var bound = condition.getChild(1);
+
+        var assign = Kind.ASSIGN_STMT.createNode();
+        assign.put("name", index);
+        assign.add(bound.copy());
+
+        var thenStmt = Kind.BLOCK_STMT.createNode();
+        thenStmt.add(assign);
+
+        var ifStmt = Kind.IF_STMT.createNode();
+        condition.detach();
+        ifStmt.add(condition);
+        ifStmt.add(thenStmt);
+        ifStmt.add(Kind.BLOCK_STMT.createNode());
+
+        whileStmt.replace(ifStmt);
+    }
+
+    /**
+     * Checks that the simple name of a library class does not refer to the class being compiled or to another import.
+     */
+    private boolean canReference(String libraryClass) {
+        var simpleName = libraryClass.substring(libraryClass.lastIndexOf('.') + 1);
+        if (table.getClassName().equals(simpleName)) {
+            return false;
+        }
+
+        return imports.stream().noneMatch(imported -> !imported.equals(libraryClass)
+                && (imported.equals(simpleName) || imported.endsWith("." + simpleName)));
+    }
+
+    private boolean isIntArray(String name, JmmNode method) {
+        var var = TypeUtils.getVarRefType(name, table, Optional.of(method));
+        return var != null && var.a.isArray() && var.a.getName().equals(TypeUtils.getIntTypeName());
+    }
+
+    private static boolean isVarRef(JmmNode node) {
+        return Kind.VAR_REF_EXPR.check(node);
+    }
+
+    private static boolean isVarRef(JmmNode node, String name) {
+        return isVarRef(node) && node.get("name").equals(name);
+    }
+
+    private static boolean isIntLiteral(JmmNode node, int value) {
+        return Kind.INTEGER_LITERAL.check(node) && Integer.parseInt(node.get("value")) == value;
+    }
+
+    private static boolean uses(JmmNode expr, String name) {
+        return expr.getDescendantsAndSelfStream().anyMatch(node -> isVarRef(node, name));
+    }
+}
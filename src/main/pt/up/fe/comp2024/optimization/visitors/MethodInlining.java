@@ -0,0 +1,205 @@
+package pt.up.fe.comp2024.optimization.visitors;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.ast.TypeUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Replaces calls to small static methods of the class being compiled by the expression they return.
+ * <p>
+ * Only methods whose body is a single return statement of a call-free expression are inlined, which also
+ * guarantees that inlining always terminates (a recursive method can never be inlined). Instance methods are never
+ * inlined, since the object may be of a subclass that overrides them.
+ */
+public class MethodInlining extends AJmmVisitor<Void, Void> {
+
+    // maximum number of nodes of the returned expression of an inlined method
+    private static final int MAX_INLINE_SIZE = 16;
+
+    public boolean changed = false;
+
+    private final SymbolTable table;
+
+    private final Map<String, JmmNode> methods;
+
+    public MethodInlining(SymbolTable table) {
+        this.table = table;
+        this.methods = new HashMap<>();
+    }
+
+    @Override
+    protected void buildVisitor() {
+        addVisit(Kind.CLASS_DECL, this::visitClassDecl);
+        addVisit(Kind.METHOD_CALL_EXPR, this::visitMethodCallExpr);
+
+        setDefaultVisit(this::visitAllChildren);
+    }
+
+    private Void visitClassDecl(JmmNode classDecl, Void unused) {
+        // collect the methods that can be called on this class
+        for (var method : classDecl.getChildren(Kind.METHOD_DECL)) {
+            methods.put(method.get("name"), method);
+        }
+
+        return visitAllChildren(classDecl, unused);
+    }
+
+    private Void visitMethodCallExpr(JmmNode methodCall, Void unused) {
+        // inline the calls in the arguments first
+        visitAllChildren(methodCall, unused);
+
+        var callee = methods.get(methodCall.get("name"));
+        var caller = methodCall.getAncestor(Kind.METHOD_DECL);
+        if (callee == null || caller.isEmpty() || callee == caller.get()) {
+            return null;
+        }
+
+        if (!isCallOnThisClass(methodCall, callee)) {
+            return null;
+        }
+
+        var body = getInlinableBody(callee);
+        if (body.isEmpty()) {
+            return null;
+        }
+
+        var params = callee.getChildren(Kind.PARAM);
+        var arguments = methodCall.getChildren().subList(1, methodCall.getNumChildren());
+        if (params.size() != arguments.size()) {
+            return null;
+        }
+
+        // the arguments are evaluated where the parameters are used, so they must not have side effects
+        Map<String, JmmNode> substitutions = new HashMap<>();
+        for (int i = 0; i < params.size(); i++) {
+            var paramName = params.get(i).get("name");
+            var argument = arguments.get(i);
+
+            if (!NodeUtils.isSideEffectFree(argument)) {
+                return null;
+            }
+
+            // only duplicate arguments that are as cheap as a local load
+            if (countUses(body.get(), paramName) > 1 && !Kind.check(argument, Kind.INTEGER_LITERAL,
+                    Kind.BOOL_LITERAL, Kind.VAR_REF_EXPR, Kind.THIS_LITERAL)) {
+                return null;
+            }
+
+            substitutions.put(paramName, argument);
+        }
+
+        if (!canBeMovedTo(body.get(), substitutions, callee, caller.get())) {
+            return null;
+        }
+
+        // build the inlined expression, renaming the parameters to the arguments
+        var inlined = body.get().copy();
+        for (var varRef : inlined.getDescendants(Kind.VAR_REF_EXPR)) {
+            var argument = substitutions.get(varRef.get("name"));
+            if (argument != null) {
+                varRef.replace(argument.copy());
+            }
+        }
+        if (Kind.VAR_REF_EXPR.check(inlined) && substitutions.containsKey(inlined.get("name"))) {
+            inlined = substitutions.get(inlined.get("name")).copy();
+        }
+
+        var parent = methodCall.getParent();
+        if (Kind.EXPR_STMT.check(parent) && NodeUtils.isSideEffectFree(inlined)) {
+            // the value is discarded and computing it can neither change the state nor throw
+            parent.detach();
+        } else {
+            methodCall.replace(inlined);
+        }
+
+        changed = true;
+        return null;
+    }
+
+    private boolean isCallOnThisClass(JmmNode methodCall, JmmNode callee) {
+        var target = methodCall.getChild(0);
+
+        // an instance method can be overridden by a subclass compiled separately, so only static calls are bound
+        if (!callee.get("isStatic").equals("true")) {
+            return false;
+        }
+
+        return Kind.VAR_REF_EXPR.check(target) && target.get("name").equals(table.getClassName());
+    }
+
+    /**
+     * @param method
+     * @return the expression returned by the method, if the method is small enough to be inlined
+     */
+    private Optional<JmmNode> getInlinableBody(JmmNode method) {
+        if (method.get("name").equals("main")) {
+            return Optional.empty();
+        }
+
+        // varargs calls need the arguments packed into an array
+        var params = table.getParameters(method.get("name"));
+        if (!params.isEmpty() && (boolean) params.get(params.size() - 1).getType().getObject("isVarArgs")) {
+            return Optional.empty();
+        }
+
+        // the body must be just the return statement
+        var hasStatements = method.getChildren().stream()
+                .anyMatch(child -> !Kind.check(child, Kind.TYPE, Kind.PARAM, Kind.VAR_DECL, Kind.RETURN_STMT));
+        var returnStmt = method.getChildren(Kind.RETURN_STMT);
+        if (hasStatements || returnStmt.size() != 1) {
+            return Optional.empty();
+        }
+
+        var expr = returnStmt.get(0).getChild(0);
+        if (NodeUtils.getSize(expr) > MAX_INLINE_SIZE) {
+            return Optional.empty();
+        }
+
+        // calls could lead to recursion and allocations must not be duplicated
+        var isLeaf = expr.getDescendantsAndSelfStream().noneMatch(node -> Kind.check(node, Kind.METHOD_CALL_EXPR,
+                Kind.NEW_EXPR, Kind.NEW_ARRAY_EXPR, Kind.ARRAY_CREATION_EXPR));
+
+        return isLeaf ? Optional.of(expr) : Optional.empty();
+    }
+
+    /**
+     * Checks that, once the parameters are replaced, every name in the expression still refers to the same variable
+     * inside the caller.
+     */
+    private boolean canBeMovedTo(JmmNode expr, Map<String, JmmNode> substitutions, JmmNode callee, JmmNode caller) {
+        var callerIsStatic = caller.get("isStatic").equals("true");
+
+        for (var node : expr.getDescendantsAndSelfStream().toList()) {
+            if (Kind.THIS_LITERAL.check(node) && callerIsStatic) {
+                return false;
+            }
+
+            if (!Kind.VAR_REF_EXPR.check(node) || substitutions.containsKey(node.get("name"))) {
+                continue;
+            }
+
+            // anything other than a parameter must be a field that is not shadowed in either method
+            var calleeVar = TypeUtils.getVarRefType(node.get("name"), table, Optional.of(callee));
+            var callerVar = TypeUtils.getVarRefType(node.get("name"), table, Optional.of(caller));
+            if (callerIsStatic || calleeVar == null || !calleeVar.b.equals("field")
+                    || callerVar == null || !callerVar.b.equals("field")) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static long countUses(JmmNode expr, String name) {
+        return expr.getDescendantsAndSelfStream()
+                .filter(node -> Kind.VAR_REF_EXPR.check(node) && node.get("name").equals(name))
+                .count();
+    }
+}
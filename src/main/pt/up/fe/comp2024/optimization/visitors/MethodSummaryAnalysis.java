@@ -0,0 +1,159 @@
+package pt.up.fe.comp2024.optimization.visitors;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.MethodSummary;
+
+import java.util.*;
+
+/**
+ * Computes the side effects of each method of the class and stores them in the symbol table.
+ * <p>
+ * The effects of a method are first collected from its own body, and then the effects of the methods it calls are
+ * added until nothing changes. A method that can call itself, directly or not, may not terminate. Calls to instance
+ * methods may run an override from a subclass compiled separately, so their effects are as unknown as those of calls
+ * to imported classes.
+ */
+public class MethodSummaryAnalysis {
+
+    private final JmmSymbolTable table;
+
+    public MethodSummaryAnalysis(JmmSymbolTable table) {
+        this.table = table;
+    }
+
+    public void visit(JmmNode root) {
+        var classDecl = root.getChildren(Kind.CLASS_DECL).get(0);
+
+        Map<String, MethodSummary> summaries = new LinkedHashMap<>();
+        Map<String, Set<String>> callees = new HashMap<>();
+
+        for (var method : classDecl.getChildren(Kind.METHOD_DECL)) {
+            var name = method.get("name");
+            var methodCallees = new HashSet<String>();
+
+            summaries.put(name, getLocalSummary(method, methodCallees));
+            callees.put(name, methodCallees);
+        }
+
+        // recursion may not terminate
+        for (var name : summaries.keySet()) {
+            if (canReach(name, name, callees)) {
+                summaries.get(name).setMayNotTerminate();
+            }
+        }
+
+        // add the effects of the called methods until a fixed point
+        var changed = true;
+        while (changed) {
+            changed = false;
+
+            for (var entry : summaries.entrySet()) {
+                for (var callee : callees.get(entry.getKey())) {
+                    var calleeSummary = summaries.get(callee);
+                    if (calleeSummary == null) {
+                        entry.getValue().setCallsImported();
+                        continue;
+                    }
+                    changed |= entry.getValue().merge(calleeSummary);
+                }
+            }
+        }
+
+        summaries.forEach(table::putMethodSummary);
+    }
+
+    /**
+     * @param method
+     * @param callees filled with the methods of the class called by the method
+     * @return the effects of the method body, without the effects of the methods it calls
+     */
+    private MethodSummary getLocalSummary(JmmNode method, Set<String> callees) {
+        var summary = new MethodSummary();
+
+        for (var node : method.getDescendants()) {
+            var kind = Kind.fromString(node.getKind());
+
+            switch (kind) {
+                case ASSIGN_STMT -> {
+                    if (isField(node.get("name"), method)) {
+                        summary.setWritesFields();
+                    }
+                }
+                case ARRAY_ASSIGN_STMT -> {
+                    if (isField(node.get("name"), method)) {
+                        summary.setReadsFields();
+                    }
+                    summary.setWritesArrays();
+                    summary.setMayThrow();
+                }
+                case VAR_REF_EXPR -> {
+                    if (isField(node.get("name"), method)) {
+                        summary.setReadsFields();
+                    }
+                }
+                // null arrays, indexes out of bounds and negative sizes
+                case ARRAY_ACCESS_EXPR, ARRAY_LENGTH_EXPR, NEW_ARRAY_EXPR -> summary.setMayThrow();
+                case BINARY_EXPR -> {
+                    if (node.get("op").equals("/")) {
+                        summary.setMayThrow();
+                    }
+                }
+                case WHILE_STMT -> {
+                    var condition = node.getChild(0);
+                    if (!Kind.BOOL_LITERAL.check(condition) || condition.get("value").equals("true")) {
+                        summary.setMayNotTerminate();
+                    }
+                }
+                case NEW_EXPR -> {
+                    // the constructor of other classes is unknown
+                    if (!node.get("name").equals(table.getClassName())) {
+                        summary.setCallsImported();
+                    }
+                }
+                case METHOD_CALL_EXPR -> addCall(node, summary, callees);
+                default -> {
+                }
+            }
+        }
+
+        return summary;
+    }
+
+    private void addCall(JmmNode methodCall, MethodSummary summary, Set<String> callees) {
+        // only a static call through the name of the class is known to run the method of the class, any other call may
+        // run an override from a subclass compiled separately
+        if (!NodeUtils.isStaticClassCall(methodCall, table.getClassName())
+                || !table.getMethods().contains(methodCall.get("name"))) {
+            summary.setCallsImported();
+            return;
+        }
+
+        callees.add(methodCall.get("name"));
+    }
+
+    private boolean isField(String name, JmmNode method) {
+        var varRef = TypeUtils.getVarRefType(name, table, Optional.of(method));
+        return varRef != null && varRef.b.equals("field");
+    }
+
+    private static boolean canReach(String from, String to, Map<String, Set<String>> callees) {
+        Set<String> visited = new HashSet<>();
+        Deque<String> worklist = new ArrayDeque<>(callees.get(from));
+
+        while (!worklist.isEmpty()) {
+            var method = worklist.pop();
+            if (method.equals(to)) {
+                return true;
+            }
+            if (visited.add(method) && callees.containsKey(method)) {
+                worklist.addAll(callees.get(method));
+            }
+        }
+
+        return false;
+    }
+}
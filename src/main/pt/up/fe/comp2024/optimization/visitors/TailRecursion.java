@@ -0,0 +1,114 @@
+package pt.up.fe.comp2024.optimization.visitors;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeUtils;
+
+/**
+ * Marks self-recursive calls in tail position, so that the OLLIR generator can turn them into a reassignment of the
+ * parameters followed by a jump to the start of the method.
+ * <p>
+ * Only static methods are changed, since a call on {@code this} may run an override from a subclass compiled
+ * separately.
+ * <p>
+ * Since Java-- methods have a single return at the end, a call is in tail position when it is either the returned
+ * expression or assigned to the returned variable by the last statement executed before the return.
+ */
+public class TailRecursion extends PreorderJmmVisitor<Void, Void> {
+
+    public static final String IS_TAIL_CALL = "isTailCall";
+    public static final String HAS_TAIL_CALLS = "hasTailCalls";
+
+    private final SymbolTable table;
+
+    public TailRecursion(SymbolTable table) {
+        this.table = table;
+    }
+
+    @Override
+    protected void buildVisitor() {
+        addVisit(Kind.METHOD_CALL_EXPR, this::visitMethodCallExpr);
+
+        setDefaultVisit((node, unused) -> null);
+    }
+
+    private Void visitMethodCallExpr(JmmNode methodCall, Void unused) {
+        var method = methodCall.getAncestor(Kind.METHOD_DECL);
+        if (method.isEmpty() || !isSelfCall(methodCall, method.get()) || !isInTailPosition(methodCall)) {
+            return null;
+        }
+
+        methodCall.putObject(IS_TAIL_CALL, true);
+        method.get().putObject(HAS_TAIL_CALLS, true);
+        return null;
+    }
+
+    private boolean isSelfCall(JmmNode methodCall, JmmNode method) {
+        var name = method.get("name");
+        if (name.equals("main") || !methodCall.get("name").equals(name)) {
+            return false;
+        }
+
+        // varargs calls need the arguments packed into an array
+        var params = table.getParameters(name);
+        if (!params.isEmpty() && (boolean) params.get(params.size() - 1).getType().getObject("isVarArgs")) {
+            return false;
+        }
+        if (params.size() != methodCall.getNumChildren() - 1) {
+            return false;
+        }
+
+        // in an instance method, this.f(...) may run an override from a subclass compiled separately
+        return method.get("isStatic").equals("true") && NodeUtils.isStaticClassCall(methodCall, table.getClassName());
+    }
+
+    private boolean isInTailPosition(JmmNode methodCall) {
+        var parent = methodCall.getParent();
+
+        // return this.f(...);
+        if (Kind.RETURN_STMT.check(parent)) {
+            return true;
+        }
+
+        // r = this.f(...); ... return r;
+        if (!Kind.ASSIGN_STMT.check(parent)) {
+            return false;
+        }
+
+        var varName = parent.get("name");
+        var method = parent.getAncestor(Kind.METHOD_DECL).get();
+        var isLocal = table.getLocalVariables(method.get("name")).stream()
+                .anyMatch(local -> local.getName().equals(varName));
+        var isParam = table.getParameters(method.get("name")).stream()
+                .anyMatch(param -> param.getName().equals(varName));
+        if (!isLocal && !isParam) {
+            return false;
+        }
+
+        // walk up until the method, checking that nothing else executes after the statement
+        var stmt = parent;
+        while (!Kind.METHOD_DECL.check(stmt.getParent())) {
+            var enclosing = stmt.getParent();
+
+            if (Kind.BLOCK_STMT.check(enclosing) && stmt.getIndexOfSelf() != enclosing.getNumChildren() - 1) {
+                return false;
+            }
+            if (!Kind.check(enclosing, Kind.BLOCK_STMT, Kind.IF_STMT)) {
+                return false;
+            }
+
+            stmt = enclosing;
+        }
+
+        // the next statement must be the return of the assigned variable
+        var next = method.getChildren().get(stmt.getIndexOfSelf() + 1);
+        if (!Kind.RETURN_STMT.check(next)) {
+            return false;
+        }
+
+        var returned = next.getChild(0);
+        return Kind.VAR_REF_EXPR.check(returned) && returned.get("name").equals(varName);
+    }
+}
@@ -0,0 +1,514 @@
+package pt.up.fe.comp2024.optimization.visitors;
+
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.ast.TypeUtils;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Computes the range of values of the int local variables at each statement, and uses it to fold comparisons whose
+ * result is always the same and to remove the branches that can never execute.
+ * <p>
+ * The ranges are computed by abstract interpretation of the AST: the ranges of both branches of an if are joined, and
+ * loops are iterated with widening until the ranges at the condition no longer change. Conditions refine the ranges
+ * inside the code they guard, e.g. {@code i} is in {@code [0, 9]} inside {@code i = 0; while (i < 10) {...}}.
+ * <p>
+ * Array indexes that are never negative are marked with {@link #NON_NEGATIVE_INDEX}.
+ */
+public class ValueRangeAnalysis extends AJmmVisitor<Void, Void> {
+
+    public static final String NON_NEGATIVE_INDEX = "nonNegativeIndex";
+
+    private static final int MAX_LOOP_ITERATIONS = 20;
+
+    // the JVM can not allocate arrays with more elements than this
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 2;
+
+    /**
+     * A range of int values, {@code [lo, hi]}.
+     */
+    private record Range(long lo, long hi) {
+
+        static final Range TOP = new Range(Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+        /**
+         * @return the range, or {@link #TOP} if it does not fit in an int, since the operation could have wrapped
+         */
+        static Range of(long lo, long hi) {
+            if (lo < Integer.MIN_VALUE || hi > Integer.MAX_VALUE) {
+                return TOP;
+            }
+            return new Range(lo, hi);
+        }
+
+        boolean isEmpty() {
+            return lo > hi;
+        }
+
+        Range join(Range other) {
+            return new Range(Math.min(lo, other.lo), Math.max(hi, other.hi));
+        }
+
+        Range widen(Range next) {
+            return new Range(next.lo < lo ? Integer.MIN_VALUE : lo, next.hi > hi ? Integer.MAX_VALUE : hi);
+        }
+    }
+
+    private enum Truth {
+        TRUE, FALSE, UNKNOWN;
+
+        static Truth of(boolean value) {
+            return value ? TRUE : FALSE;
+        }
+
+        Truth not() {
+            return switch (this) {
+                case TRUE -> FALSE;
+                case FALSE -> TRUE;
+                case UNKNOWN -> UNKNOWN;
+            };
+        }
+    }
+
+    public boolean changed = false;
+
+    // int locals and parameters of the current method, the only variables whose range is tracked
+    private Set<String> trackedVars = new HashSet<>();
+
+    @Override
+    protected void buildVisitor() {
+        addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
+
+        setDefaultVisit(this::visitAllChildren);
+    }
+
+    private Void visitMethodDecl(JmmNode method, Void unused) {
+        trackedVars = new HashSet<>();
+        for (var child : method.getChildren()) {
+            if (Kind.check(child, Kind.VAR_DECL, Kind.PARAM) && isIntType(child.getChild(0))) {
+                trackedVars.add(child.get("name"));
+            }
+        }
+
+        // the variables start with any value, missing entries are unknown
+        Map<String, Range> env = new HashMap<>();
+        for (var stmt : method.getChildren()) {
+            if (env == null) {
+                break;
+            }
+            if (!Kind.check(stmt, Kind.TYPE, Kind.PARAM, Kind.VAR_DECL, Kind.MAIN_RETURN_TYPE)) {
+                env = exec(stmt, env, true);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Executes a statement over the ranges of the variables.
+     *
+     * @param stmt
+     * @param env     the ranges before the statement, which may be modified
+     * @param rewrite if the statement should be simplified with the computed ranges
+     * @return the ranges after the statement, or null if the code after the statement can not be reached
+     */
+    private Map<String, Range> exec(JmmNode stmt, Map<String, Range> env, boolean rewrite) {
+        var kind = Kind.fromString(stmt.getKind());
+
+        switch (kind) {
+            case BLOCK_STMT -> {
+                for (var child : stmt.getChildren()) {
+                    if (env == null) {
+                        break;
+                    }
+                    env = exec(child, env, rewrite);
+                }
+                return env;
+            }
+            case IF_STMT -> {
+                return execIf(stmt, env, rewrite);
+            }
+            case WHILE_STMT -> {
+                return execWhile(stmt, env, rewrite);
+            }
+            case ASSIGN_STMT -> {
+                if (rewrite) {
+                    foldExpr(stmt.getChild(0), env);
+                }
+                if (trackedVars.contains(stmt.get("name"))) {
+                    env.put(stmt.get("name"), eval(stmt.getChild(0), env));
+                }
+                return env;
+            }
+            case ARRAY_ASSIGN_STMT -> {
+                if (rewrite) {
+                    foldExpr(stmt.getChild(0), env);
+                    foldExpr(stmt.getChild(1), env);
+                    markIndex(stmt.getChild(0), env);
+                }
+                return env;
+            }
+            default -> {
+                if (rewrite) {
+                    for (var child : stmt.getChildren()) {
+                        foldExpr(child, env);
+                    }
+                }
+                return env;
+            }
+        }
+    }
+
+    private Map<String, Range> execIf(JmmNode ifStmt, Map<String, Range> env, boolean rewrite) {
+        if (rewrite) {
+            foldExpr(ifStmt.getChild(0), env);
+        }
+
+        var condition = ifStmt.getChild(0);
+        var truth = evalBool(condition, env);
+
+        // only one of the branches can execute
+        if (rewrite && truth != Truth.UNKNOWN && NodeUtils.isSideEffectFree(condition)) {
+            var branch = ifStmt.getChild(truth == Truth.TRUE ? 1 : 2);
+            branch.detach();
+            ifStmt.replace(branch);
+            changed = true;
+
+            return exec(branch, env, true);
+        }
+
+        var thenEnv = truth == Truth.FALSE ? null : refine(condition, copy(env), true);
+        var elseEnv = truth == Truth.TRUE ? null : refine(condition, copy(env), false);
+
+        if (thenEnv != null) {
+            thenEnv = exec(ifStmt.getChild(1), thenEnv, rewrite);
+        }
+        if (elseEnv != null) {
+            elseEnv = exec(ifStmt.getChild(2), elseEnv, rewrite);
+        }
+
+        return join(thenEnv, elseEnv);
+    }
+
+    private Map<String, Range> execWhile(JmmNode whileStmt, Map<String, Range> env, boolean rewrite) {
+        var condition = whileStmt.getChild(0);
+        var body = whileStmt.getChild(1);
+
+        // ranges at the condition, iterated until they no longer change
+        var head = copy(env);
+        var converged = false;
+        for (int i = 0; i < MAX_LOOP_ITERATIONS && !converged; i++) {
+            var next = widen(head, join(env, execBody(condition, body, head)));
+            converged = next.equals(head);
+            head = next;
+        }
+
+        // nothing is known about the variables if the ranges did not converge
+        if (!converged) {
+            head = new HashMap<>();
+        }
+
+        // one more iteration without widening recovers the bounds lost by it
+        var narrowed = join(env, execBody(condition, body, head));
+        if (narrowed != null) {
+            head = narrowed;
+        }
+
+        if (rewrite) {
+            foldExpr(condition, head);
+            condition = whileStmt.getChild(0);
+
+            // the loop never executes
+            if (evalBool(condition, head) == Truth.FALSE && NodeUtils.isSideEffectFree(condition)) {
+                removeStmt(whileStmt);
+                changed = true;
+                return env;
+            }
+
+            var bodyEnv = refine(condition, copy(head), true);
+            if (bodyEnv != null) {
+                exec(body, bodyEnv, true);
+            }
+        }
+
+        return refine(condition, copy(head), false);
+    }
+
+    /**
+     * @return the ranges after executing the body once from the given ranges at the condition
+     */
+    private Map<String, Range> execBody(JmmNode condition, JmmNode body, Map<String, Range> head) {
+        if (evalBool(condition, head) == Truth.FALSE) {
+            return null;
+        }
+
+        var bodyEnv = refine(condition, copy(head), true);
+        return bodyEnv == null ? null : exec(body, bodyEnv, false);
+    }
+
+    /**
+     * Replaces the comparisons inside the expression whose result is known by their value.
+     */
+    private void foldExpr(JmmNode expr, Map<String, Range> env) {
+        if (env == null) {
+            return;
+        }
+
+        if (Kind.BINARY_EXPR.check(expr) && expr.get("op").equals("&&")) {
+            foldExpr(expr.getChild(0), env);
+            // the right operand is only evaluated when the left one is true
+            foldExpr(expr.getChild(1), refine(expr.getChild(0), copy(env), true));
+            return;
+        }
+
+        for (var child : expr.getChildren()) {
+            foldExpr(child, env);
+        }
+
+        if (Kind.ARRAY_ACCESS_EXPR.check(expr)) {
+            markIndex(expr.getChild(1), env);
+        }
+
+        if (Kind.BINARY_EXPR.check(expr) && expr.get("op").equals("<") && NodeUtils.isSideEffectFree(expr)) {
+            var truth = evalBool(expr, env);
+            if (truth != Truth.UNKNOWN) {
+                var literal = Kind.BOOL_LITERAL.createNode();
+                literal.put("value", String.valueOf(truth == Truth.TRUE));
+                expr.replace(literal);
+                changed = true;
+            }
+        }
+    }
+
+    private void markIndex(JmmNode index, Map<String, Range> env) {
+        if (env != null && eval(index, env).lo() >= 0) {
+            index.putObject(NON_NEGATIVE_INDEX, true);
+        }
+    }
+
+    private Range eval(JmmNode expr, Map<String, Range> env) {
+        var kind = Kind.fromString(expr.getKind());
+
+        return switch (kind) {
+            case INTEGER_LITERAL -> {
+                var value = Long.parseLong(expr.get("value"));
+                yield new Range(value, value);
+            }
+            case VAR_REF_EXPR -> trackedVars.contains(expr.get("name"))
+                    ? env.getOrDefault(expr.get("name"), Range.TOP) : Range.TOP;
+            case PAREN_EXPR -> eval(expr.getChild(0), env);
+            case ARRAY_LENGTH_EXPR -> new Range(0, MAX_ARRAY_LENGTH);
+            case BINARY_EXPR -> evalBinary(expr, env);
+            default -> Range.TOP;
+        };
+    }
+
+    private Range evalBinary(JmmNode expr, Map<String, Range> env) {
+        var op = expr.get("op");
+        if (!op.equals("+") && !op.equals("-") && !op.equals("*")) {
+            return Range.TOP;
+        }
+
+        var left = eval(expr.getChild(0), env);
+        var right = eval(expr.getChild(1), env);
+
+        return switch (op) {
+            case "+" -> Range.of(left.lo() + right.lo(), left.hi() + right.hi());
+            case "-" -> Range.of(left.lo() - right.hi(), left.hi() - right.lo());
+            default -> {
+                long[] products = {left.lo() * right.lo(), left.lo() * right.hi(),
+                        left.hi() * right.lo(), left.hi() * right.hi()};
+                var lo = Long.MAX_VALUE;
+                var hi = Long.MIN_VALUE;
+                for (var product : products) {
+                    lo = Math.min(lo, product);
+                    hi = Math.max(hi, product);
+                }
+                yield Range.of(lo, hi);
+            }
+        };
+    }
+
+    private Truth evalBool(JmmNode expr, Map<String, Range> env) {
+        var kind = Kind.fromString(expr.getKind());
+
+        switch (kind) {
+            case BOOL_LITERAL -> {
+                return Truth.of(Boolean.parseBoolean(expr.get("value")));
+            }
+            case PAREN_EXPR -> {
+                return evalBool(expr.getChild(0), env);
+            }
+            case UNARY_EXPR -> {
+                return evalBool(expr.getChild(0), env).not();
+            }
+            case BINARY_EXPR -> {
+                if (expr.get("op").equals("<")) {
+                    var left = eval(expr.getChild(0), env);
+                    var right = eval(expr.getChild(1), env);
+
+                    if (left.hi() < right.lo()) {
+                        return Truth.TRUE;
+                    }
+                    if (left.lo() >= right.hi()) {
+                        return Truth.FALSE;
+                    }
+                    return Truth.UNKNOWN;
+                }
+
+                if (expr.get("op").equals("&&")) {
+                    var left = evalBool(expr.getChild(0), env);
+                    var rightEnv = refine(expr.getChild(0), copy(env), true);
+                    if (left == Truth.FALSE || rightEnv == null) {
+                        return Truth.FALSE;
+                    }
+
+                    var right = evalBool(expr.getChild(1), rightEnv);
+                    if (left == Truth.TRUE || right == Truth.FALSE) {
+                        return right;
+                    }
+                }
+
+                return Truth.UNKNOWN;
+            }
+            default -> {
+                return Truth.UNKNOWN;
+            }
+        }
+    }
+
+    /**
+     * Restricts the ranges to the values for which the condition has the given outcome.
+     *
+     * @return the restricted ranges, or null if the condition can never have the outcome
+     */
+    private Map<String, Range> refine(JmmNode condition, Map<String, Range> env, boolean outcome) {
+        if (env == null) {
+            return null;
+        }
+
+        var kind = Kind.fromString(condition.getKind());
+        switch (kind) {
+            case PAREN_EXPR -> {
+                return refine(condition.getChild(0), env, outcome);
+            }
+            case UNARY_EXPR -> {
+                return refine(condition.getChild(0), env, !outcome);
+            }
+            case BOOL_LITERAL -> {
+                return Boolean.parseBoolean(condition.get("value")) == outcome ? env : null;
+            }
+            case BINARY_EXPR -> {
+                if (condition.get("op").equals("&&")) {
+                    // a false conjunction says nothing about which operand was false
+                    if (!outcome) {
+                        return evalBool(condition, env) == Truth.TRUE ? null : env;
+                    }
+                    return refine(condition.getChild(1), refine(condition.getChild(0), env, true), true);
+                }
+
+                if (condition.get("op").equals("<")) {
+                    return refineLess(condition.getChild(0), condition.getChild(1), env, outcome);
+                }
+
+                return env;
+            }
+            default -> {
+                return env;
+            }
+        }
+    }
+
+    private Map<String, Range> refineLess(JmmNode leftExpr, JmmNode rightExpr, Map<String, Range> env,
+                                          boolean outcome) {
+        var left = eval(leftExpr, env);
+        var right = eval(rightExpr, env);
+
+        // left < right, or left >= right
+        var newLeft = outcome ? new Range(left.lo(), Math.min(left.hi(), right.hi() - 1))
+                : new Range(Math.max(left.lo(), right.lo()), left.hi());
+        var newRight = outcome ? new Range(Math.max(right.lo(), left.lo() + 1), right.hi())
+                : new Range(right.lo(), Math.min(right.hi(), left.hi()));
+
+        if (newLeft.isEmpty() || newRight.isEmpty()) {
+            return null;
+        }
+
+        getTrackedVar(leftExpr).ifPresent(name -> env.put(name, newLeft));
+        getTrackedVar(rightExpr).ifPresent(name -> env.put(name, newRight));
+
+        return env;
+    }
+
+    private Optional<String> getTrackedVar(JmmNode expr) {
+        while (Kind.PAREN_EXPR.check(expr)) {
+            expr = expr.getChild(0);
+        }
+
+        if (Kind.VAR_REF_EXPR.check(expr) && trackedVars.contains(expr.get("name"))) {
+            return Optional.of(expr.get("name"));
+        }
+        return Optional.empty();
+    }
+
+    private static Map<String, Range> copy(Map<String, Range> env) {
+        return env == null ? null : new HashMap<>(env);
+    }
+
+    /**
+     * @return the ranges of the variables when coming from either of the environments
+     */
+    private static Map<String, Range> join(Map<String, Range> env1, Map<String, Range> env2) {
+        if (env1 == null) {
+            return copy(env2);
+        }
+        if (env2 == null) {
+            return copy(env1);
+        }
+
+        // variables missing from either environment are unknown
+        Map<String, Range> joined = new HashMap<>();
+        for (var entry : env1.entrySet()) {
+            var other = env2.get(entry.getKey());
+            if (other != null) {
+                joined.put(entry.getKey(), entry.getValue().join(other));
+            }
+        }
+        return joined;
+    }
+
+    private static Map<String, Range> widen(Map<String, Range> previous, Map<String, Range> next) {
+        if (next == null) {
+            return previous;
+        }
+
+        Map<String, Range> widened = new HashMap<>();
+        for (var entry : previous.entrySet()) {
+            var nextRange = next.get(entry.getKey());
+            if (nextRange != null) {
+                widened.put(entry.getKey(), entry.getValue().widen(nextRange));
+            }
+        }
+        return widened;
+    }
+
+    private static void removeStmt(JmmNode stmt) {
+        // an unbraced if or while body must keep a statement
+        if (Kind.check(stmt.getParent(), Kind.IF_STMT, Kind.WHILE_STMT)) {
+            stmt.replace(Kind.BLOCK_STMT.createNode());
+        } else {
+            stmt.detach();
+        }
+    }
+
+    private static boolean isIntType(JmmNode type) {
+        return type.get("name").equals(TypeUtils.getIntTypeName()) && type.get("isArray").equals("false");
+    }
+}
@@ -0,0 +1,168 @@
+package pt.up.fe.comp2024.optimization.visitors;
+
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.ast.NodeUtils;
+import pt.up.fe.comp2024.ast.TypeUtils;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Moves the arrays built for varargs calls with constant arguments out of loops.
+ * <p>
+ * When the called method of the class only reads the elements and the length of its varargs parameter, the array
+ * cannot be changed by the call, so it is built once before the outermost loop around the call and passed directly
+ * in every iteration. Calls inside the same loop with the same constant arguments share the array. Only static calls
+ * through the name of the class are changed, since any other call may run an override from a subclass compiled
+ * separately, which could modify the array.
+ */
+public class VarargsArrayHoisting extends AJmmVisitor<Void, Void> {
+
+    private static final String ARRAY_PREFIX = "varargs_";
+
+    private final JmmSymbolTable table;
+
+    // static methods of the class whose varargs parameter is never modified nor passed anywhere
+    private final Set<String> readOnlyVarargs;
+
+    public VarargsArrayHoisting(JmmSymbolTable table) {
+        this.table = table;
+        this.readOnlyVarargs = new HashSet<>();
+    }
+
+    @Override
+    protected void buildVisitor() {
+        addVisit(Kind.CLASS_DECL, this::visitClassDecl);
+        addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
+
+        setDefaultVisit(this::visitAllChildren);
+    }
+
+    private Void visitClassDecl(JmmNode classDecl, Void unused) {
+        for (var method : classDecl.getChildren(Kind.METHOD_DECL)) {
+            var params = method.getChildren(Kind.PARAM);
+            if (!method.get("isStatic").equals("true") || params.isEmpty()
+                    || !params.get(params.size() - 1).getChild(0).get("isVarArgs").equals("true")) {
+                continue;
+            }
+
+            if (isReadOnly(method, params.get(params.size() - 1).get("name"))) {
+                readOnlyVarargs.add(method.get("name"));
+            }
+        }
+
+        return visitAllChildren(classDecl, unused);
+    }
+
+    private static boolean isReadOnly(JmmNode method, String param) {
+        var isAssigned = method.getDescendantsStream()
+                .filter(node -> Kind.check(node, Kind.ASSIGN_STMT, Kind.ARRAY_ASSIGN_STMT))
+                .anyMatch(node -> node.get("name").equals(param));
+
+        // the only uses are a[i] and a.length
+        var escapes = method.getDescendants(Kind.VAR_REF_EXPR).stream()
+                .filter(varRef -> varRef.get("name").equals(param))
+                .anyMatch(varRef -> varRef.getIndexOfSelf() != 0
+                        || !Kind.check(varRef.getParent(), Kind.ARRAY_ACCESS_EXPR, Kind.ARRAY_LENGTH_EXPR));
+
+        return !isAssigned && !escapes;
+    }
+
+    private Void visitMethodDecl(JmmNode method, Void unused) {
+        // arrays already built for each loop, by their elements
+        Map<JmmNode, Map<List<String>, String>> hoisted = new HashMap<>();
+
+        for (var methodCall : method.getDescendants(Kind.METHOD_CALL_EXPR)) {
+            var name = methodCall.get("name");
+            if (!readOnlyVarargs.contains(name) || !NodeUtils.isStaticClassCall(methodCall, table.getClassName())) {
+                continue;
+            }
+
+            var params = table.getParameters(name);
+            var varargs = methodCall.getChildren().subList(params.size(), methodCall.getNumChildren());
+            if (!isVarargsCall(methodCall, params.size()) || !varargs.stream().allMatch(VarargsArrayHoisting::isLiteral)) {
+                continue;
+            }
+
+            var loop = getOutermostLoop(methodCall);
+            if (loop == null) {
+                continue;
+            }
+
+            var elements = varargs.stream()
+                    .map(arg -> arg.get("value"))
+                    .collect(Collectors.toList());
+            var loopArrays = hoisted.computeIfAbsent(loop, key -> new HashMap<>());
+
+            var array = loopArrays.get(elements);
+            if (array == null) {
+                var elementType = params.get(params.size() - 1).getType().getName();
+                array = NodeUtils.declareLocal(method, ARRAY_PREFIX + name, new Type(elementType, true), table);
+                loop.insertBefore(buildArray(array, varargs));
+                loopArrays.put(elements, array);
+            }
+
+            for (var arg : varargs) {
+                arg.detach();
+            }
+
+            var arrayRef = Kind.VAR_REF_EXPR.createNode();
+            arrayRef.put("name", array);
+            methodCall.add(arrayRef);
+            methodCall.putObject("isVarArgsUsed", false);
+        }
+
+        return null;
+    }
+
+    /**
+     * @return true if the arguments after the fixed parameters are the elements of the array, not the array itself
+     */
+    private boolean isVarargsCall(JmmNode methodCall, int numParams) {
+        var numArgs = methodCall.getNumChildren() - 1;
+        if (numArgs != numParams) {
+            return numArgs > numParams;
+        }
+
+        var lastArgType = TypeUtils.getExprType(methodCall.getChild(numArgs), table);
+        return lastArgType != null && !lastArgType.isArray();
+    }
+
+    /**
+     * @return the outermost loop around the call whose statement can be preceded by another one, if there is one
+     */
+    private static JmmNode getOutermostLoop(JmmNode methodCall) {
+        JmmNode loop = null;
+        for (var node = methodCall.getParent(); node != null && !Kind.METHOD_DECL.check(node); node = node.getParent()) {
+            if (Kind.WHILE_STMT.check(node) && Kind.check(node.getParent(), Kind.METHOD_DECL, Kind.BLOCK_STMT)) {
+                loop = node;
+            }
+        }
+
+        return loop;
+    }
+
+    private static boolean isLiteral(JmmNode node) {
+        return Kind.check(node, Kind.INTEGER_LITERAL, Kind.BOOL_LITERAL);
+    }
+
+    private static JmmNode buildArray(String name, List<JmmNode> elements) {
+        var arrayCreation = Kind.ARRAY_CREATION_EXPR.createNode();
+        for (var element : elements) {
+            arrayCreation.add(element.copy());
+        }
+
+        var assign = Kind.ASSIGN_STMT.createNode();
+        assign.put("name", name);
+        assign.add(arrayCreation);
+        return assign;
+    }
+}
@@ -0,0 +1,205 @@
+package pt.up.fe.comp2024.parser;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.ast.NodeUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static pt.up.fe.comp2024.ast.Kind.*;
+
+/**
+ * Parses an edited file by reparsing only the part of it around the edit.
+ * <p>
+ * The edit is the range of characters between the common prefix and the common suffix of the previous and the new
+ * code. The smallest method or statement of the previous AST that strictly contains the edit is lexed and parsed again
+ * with its own rule, starting at its position in the file, and replaces the old subtree in a copy of the previous AST.
+ * The nodes after the edit have their positions moved by the size of the edit. The method and statement rules all end
+ * with a one character token, which is how their last character is found from the position of the last token.
+ */
+class IncrementalParser {
+
+    private final JmmParserImpl parser;
+    private final JmmNode previousRoot;
+    private final String code;
+
+    private final int[] previousLines;
+    private final int[] lines;
+
+    // the edit, in characters of the previous code
+    private final int editStart;
+    private final int editEnd;
+    private final int delta;
+
+    // the subtree that is parsed again
+    private JmmNode target;
+
+    IncrementalParser(JmmParserImpl parser, String previousCode, JmmNode previousRoot, String code) {
+        this.parser = parser;
+        this.previousRoot = previousRoot;
+        this.code = code;
+        this.previousLines = getLineOffsets(previousCode);
+        this.lines = getLineOffsets(code);
+
+        var maxCommon = Math.min(previousCode.length(), code.length());
+
+        var prefix = 0;
+        while (prefix < maxCommon && previousCode.charAt(prefix) == code.charAt(prefix)) {
+            prefix++;
+        }
+
+        var suffix = 0;
+        while (suffix < maxCommon - prefix && previousCode.charAt(previousCode.length() - 1 - suffix)
+                == code.charAt(code.length() - 1 - suffix)) {
+            suffix++;
+        }
+
+        this.editStart = prefix;
+        this.editEnd = previousCode.length() - suffix;
+        this.delta = code.length() - previousCode.length();
+    }
+
+    Optional<JmmParserResult> reparse(Map<String, String> config) {
+        target = findTarget(previousRoot).orElse(null);
+        if (target == null) {
+            return Optional.empty();
+        }
+
+        var start = getStart(target, previousLines);
+        var end = getEnd(target, previousLines);
+        var snippet = code.substring(start, end + delta);
+
+        var result = parser.parse(snippet, getRule(target), getLine(target), getColumn(target), config);
+        if (result.getRootNode() == null) {
+            return Optional.empty();
+        }
+
+        var root = copy(previousRoot, result.getRootNode());
+        return Optional.of(new JmmParserResult(root, result.getReports(), config));
+    }
+
+    /**
+     * @return the smallest method or statement whose characters strictly contain the edit
+     */
+    private Optional<JmmNode> findTarget(JmmNode node) {
+        if (getStart(node, previousLines) >= editStart || getEnd(node, previousLines) <= editEnd) {
+            return Optional.empty();
+        }
+
+        for (var child : node.getChildren()) {
+            var childTarget = findTarget(child);
+            if (childTarget.isPresent()) {
+                return childTarget;
+            }
+        }
+
+        return getRule(node) != null ? Optional.of(node) : Optional.empty();
+    }
+
+    private static String getRule(JmmNode node) {
+        if (METHOD_DECL.check(node)) {
+            return "methodDecl";
+        }
+
+        if (RETURN_STMT.check(node)) {
+            return "returnStmt";
+        }
+
+        return node.isInstance(STMT) ? "stmt" : null;
+    }
+
+    /**
+     * Copies the previous AST with the new subtree in place of the target, moving the positions after the edit.
+     */
+    private JmmNode copy(JmmNode node, JmmNode replacement) {
+        if (node == target) {
+            return replacement;
+        }
+
+        var copy = NodeUtils.copyNode(node);
+        move(copy, NodePosition.LINE_START, NodePosition.COL_START);
+        move(copy, NodePosition.LINE_END, NodePosition.COL_END);
+
+        for (var child : node.getChildren()) {
+            copy.add(copy(child, replacement));
+        }
+
+        return copy;
+    }
+
+    private void move(JmmNode node, NodePosition line, NodePosition column) {
+        if (!node.hasAttribute(line.getString())) {
+            return;
+        }
+
+        var offset = getOffset(previousLines, Integer.parseInt(node.get(line.getString())),
+                Integer.parseInt(node.get(column.getString())));
+        // only the target, which is replaced, has positions inside the edit
+        if (offset < editEnd) {
+            return;
+        }
+
+        offset += delta;
+        var newLine = getLineOfOffset(lines, offset);
+        node.put(line.getString(), Integer.toString(newLine));
+        node.put(column.getString(), Integer.toString(offset - lines[newLine - 1]));
+    }
+
+    private static int getLine(JmmNode node) {
+        return Integer.parseInt(node.get(NodePosition.LINE_START.getString()));
+    }
+
+    private static int getColumn(JmmNode node) {
+        return Integer.parseInt(node.get(NodePosition.COL_START.getString()));
+    }
+
+    private static int getStart(JmmNode node, int[] lines) {
+        if (!node.hasAttribute(NodePosition.LINE_START.getString())) {
+            return -1;
+        }
+
+        return getOffset(lines, getLine(node), getColumn(node));
+    }
+
+    /**
+     * @return the offset after the last character of the node, assuming its last token has a single character
+     */
+    private static int getEnd(JmmNode node, int[] lines) {
+        if (!node.hasAttribute(NodePosition.LINE_END.getString())) {
+            return -1;
+        }
+
+        return getOffset(lines, Integer.parseInt(node.get(NodePosition.LINE_END.getString())),
+                Integer.parseInt(node.get(NodePosition.COL_END.getString()))) + 1;
+    }
+
+    private static int getOffset(int[] lines, int line, int column) {
+        return lines[line - 1] + column;
+    }
+
+    private static int getLineOfOffset(int[] lines, int offset) {
+        var index = Arrays.binarySearch(lines, offset);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * @return the offset of the first character of each line
+     */
+    private static int[] getLineOffsets(String code) {
+        List<Integer> offsets = new ArrayList<>();
+        offsets.add(0);
+
+        for (int i = 0; i < code.length(); i++) {
+            if (code.charAt(i) == '\n') {
+                offsets.add(i + 1);
+            }
+        }
+
+        return offsets.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
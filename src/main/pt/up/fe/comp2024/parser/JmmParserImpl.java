@@ -1,15 +1,29 @@
 package pt.up.fe.comp2024.parser;
 
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
+import pt.up.fe.comp.jmm.ast.antlr.JmmErrorListener;
+import pt.up.fe.comp.jmm.ast.antlr.JmmNodeCleanup;
 import pt.up.fe.comp.jmm.parser.JmmParser;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.CompilerConfig;
+import pt.up.fe.specs.util.SpecsSystem;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * Copyright 2022 SPeCS.
@@ -33,24 +47,130 @@ public class JmmParserImpl implements JmmParser {
 
     @Override
     public JmmParserResult parse(String jmmCode, String startingRule, Map<String, String> config) {
+        return parse(jmmCode, startingRule, 1, 0, config);
+    }
+
+    /**
+     * Parses code that differs from code parsed before by a single edit, reparsing only the smallest method or
+     * statement around the edit. The rest of the AST is copied from the previous AST, which is left unchanged.
+     *
+     * @return the result of the parsing, or empty if the edit cannot be reparsed on its own
+     */
+    public Optional<JmmParserResult> reparse(String previousCode, JmmNode previousRoot, String jmmCode,
+                                             Map<String, String> config) {
+        return new IncrementalParser(this, previousCode, previousRoot, jmmCode).reparse(config);
+    }
+
+    /**
+     * Parses code that starts at the given line and column of a file, which is the position its nodes get. The whole
+     * code has to match the starting rule.
+     * <p>
+     * The code is first parsed with SLL prediction, which decides between alternatives without looking at the rules
+     * that called the current one and is much faster. SLL may reject code that is correct, so at the first syntax
+     * error the parse is abandoned and the code is parsed again with full LL prediction, which also reports the errors
+     * of code that is really wrong.
+     */
+    JmmParserResult parse(String jmmCode, String startingRule, int line, int column, Map<String, String> config) {
 
         try {
-            // Convert code string into a character stream
-            var input = new ANTLRInputStream(jmmCode);
-            // Transform characters into tokens using the lexer
-            var lex = new pt.up.fe.comp2024.JavammLexer(input);
-            // Wrap lexer around a token stream
-            var tokens = new CommonTokenStream(lex);
-            // Transforms tokens into a parse tree
-            var parser = new pt.up.fe.comp2024.JavammParser(tokens);
+            // the library finds the starting rule through a cache that is not thread-safe, so it is filled here
+            synchronized (JmmParserImpl.class) {
+                SpecsSystem.getMethod(pt.up.fe.comp2024.JavammParser.class, startingRule);
+            }
 
+            if (CompilerConfig.getParserProfile(config)) {
+                return parse(jmmCode, startingRule, line, column, PredictionMode.LL_EXACT_AMBIG_DETECTION, config);
+            }
 
-            // Convert ANTLR CST to JmmNode AST
-            return AntlrParser.parse(lex, parser, startingRule, config);
+            try {
+                return parse(jmmCode, startingRule, line, column, PredictionMode.SLL, config);
+            } catch (RuntimeException e) {
+                if (!isBailOut(e)) {
+                    throw e;
+                }
+            }
+
+            return parse(jmmCode, startingRule, line, column, PredictionMode.LL, config);
 
         } catch (Exception e) {
             // There was an uncaught exception during parsing, create an error JmmParserResult without root node
             return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, "Exception during parsing", e), config);
         }
     }
+
+    private JmmParserResult parse(String jmmCode, String startingRule, int line, int column, PredictionMode mode,
+                                  Map<String, String> config) {
+        // Convert code string into a character stream
+        var input = new ANTLRInputStream(jmmCode);
+        // Transform characters into tokens using the lexer
+        var lex = new pt.up.fe.comp2024.JavammLexer(input);
+        lex.setLine(line);
+        lex.setCharPositionInLine(column);
+        // Wrap lexer around a token stream
+        var tokens = new CommonTokenStream(lex);
+        // Transforms tokens into a parse tree
+        var parser = new pt.up.fe.comp2024.JavammParser(tokens);
+
+        var profile = CompilerConfig.getParserProfile(config);
+        parser.setProfile(profile);
+        parser.getInterpreter().setPredictionMode(mode);
+
+        // without the full context SLL cannot tell a wrong input from a wrong prediction, so it gives up at once
+        if (mode == PredictionMode.SLL) {
+            parser.setErrorHandler(new BailErrorStrategy());
+        }
+
+        // the same as AntlrParser.parse, but with a faster conversion of the parse tree
+        lex.removeErrorListeners();
+        var lexerListener = new JmmErrorListener(Stage.LEXICAL);
+        lex.addErrorListener(lexerListener);
+
+        parser.removeErrorListeners();
+        var parserListener = new JmmErrorListener(Stage.SYNTATIC);
+        parser.addErrorListener(parserListener);
+
+        var tree = (ParserRuleContext) SpecsSystem.invoke(parser, startingRule);
+
+        if (profile) {
+            System.out.println(ParserProfile.getReport(parser));
+        }
+
+        List<Report> reports = new ArrayList<>();
+        reports.addAll(lexerListener.getReports());
+        reports.addAll(parserListener.getReports());
+
+        if (reports.stream().anyMatch(report -> report.getType() == ReportType.ERROR)) {
+            return new JmmParserResult(null, reports, config);
+        }
+
+        // only the rule of the program ends with the end of the file
+        if (parser.getCurrentToken().getType() != Token.EOF) {
+            var token = parser.getCurrentToken();
+            return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, token.getLine(),
+                    token.getCharPositionInLine(), "Unexpected input '" + token.getText() + "'", null), config);
+        }
+
+        // Convert ANTLR CST to JmmNode AST
+        var ignoreList = AntlrParser.getIgnoreList(parser);
+        var root = ParseTreeConverter.convert(tree, parser, ignoreList);
+        if (!ignoreList.isEmpty()) {
+            new JmmNodeCleanup(ignoreList).visit(root);
+        }
+
+        return new JmmParserResult(root, reports, config);
+    }
+
+    /**
+     * @return true if the exception is the SLL parse giving up, which reaches here wrapped by the reflective call of
+     * the starting rule
+     */
+    private static boolean isBailOut(Throwable e) {
+        for (var cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ParseCancellationException) {
+                return true;
+            }
+        }
+
+        return false;
+    }
 }
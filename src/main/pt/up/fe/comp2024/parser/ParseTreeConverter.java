@@ -0,0 +1,187 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Converts an ANTLR parse tree into the same AST as the converter of the library, in a fraction of the time.
+ * <p>
+ * The library looks up the kind, hierarchy and public fields of every node by reflection and then goes through the
+ * whole AST again, looking for attributes that are parse tree nodes. Here the reflection is done once for each class of
+ * the parser and kept, and the attributes that point to parse tree nodes are remembered while converting, so only
+ * those are replaced at the end.
+ */
+class ParseTreeConverter {
+
+    private static final Map<Class<?>, NodeClass> NODE_CLASSES = new ConcurrentHashMap<>();
+
+    private final Parser parser;
+    private final List<String> ignoreList;
+    private final Map<ParseTree, JmmNode> antlrToJmm;
+    private final List<Runnable> replacements;
+
+    private ParseTreeConverter(Parser parser, List<String> ignoreList) {
+        this.parser = parser;
+        this.ignoreList = ignoreList;
+        this.antlrToJmm = new IdentityHashMap<>();
+        this.replacements = new ArrayList<>();
+    }
+
+    /**
+     * The kind, hierarchy and public fields of a class of the parser, in the order the library finds them.
+     */
+    private record NodeClass(String kind, List<String> hierarchy, List<Field> fields) {
+
+        static NodeClass of(Class<?> nodeClass) {
+            List<String> hierarchy = new ArrayList<>();
+            List<Field> fields = new ArrayList<>();
+
+            for (var current = nodeClass; !current.equals(ParserRuleContext.class); current = current.getSuperclass()) {
+                hierarchy.add(getKind(current));
+
+                for (var field : current.getDeclaredFields()) {
+                    if (Modifier.isPublic(field.getModifiers())) {
+                        fields.add(field);
+                    }
+                }
+            }
+
+            return new NodeClass(hierarchy.get(0), List.copyOf(hierarchy), List.copyOf(fields));
+        }
+
+        private static String getKind(Class<?> nodeClass) {
+            var className = nodeClass.getSimpleName();
+
+            // Rules end with context
+            if (!className.endsWith("Context")) {
+                throw new RuntimeException("Expected classname to end with 'Context' " + className);
+            }
+
+            return className.substring(0, className.length() - "Context".length());
+        }
+    }
+
+    /**
+     * @param ignoreList the kinds of the nodes that are removed from the AST after the conversion, which attributes
+     *                   skip to their only child
+     */
+    static JmmNode convert(ParserRuleContext tree, Parser parser, List<String> ignoreList) {
+        var converter = new ParseTreeConverter(parser, ignoreList);
+        var root = converter.convertNode(tree);
+
+        // the nodes an attribute points to may only be converted after the node with the attribute
+        converter.replacements.forEach(Runnable::run);
+
+        return root;
+    }
+
+    private JmmNode convertNode(ParserRuleContext node) {
+        var nodeClass = NODE_CLASSES.computeIfAbsent(node.getClass(), NodeClass::of);
+
+        var jmmNode = new JmmNodeImpl(nodeClass.kind());
+        jmmNode.setHierarchy(new ArrayList<>(nodeClass.hierarchy()));
+        antlrToJmm.put(node, jmmNode);
+
+        addAttributes(jmmNode, node, nodeClass);
+
+        for (int i = 0; i < node.getChildCount(); i++) {
+            var child = node.getChild(i);
+
+            // tokens are kept in the attributes of the rules, not as nodes
+            if (child instanceof TerminalNode) {
+                continue;
+            }
+
+            if (!(child instanceof ParserRuleContext childContext)) {
+                throw new RuntimeException("Expected node to be of class '" + ParserRuleContext.class
+                        + "', but got '" + child.getClass() + "'");
+            }
+
+            jmmNode.add(convertNode(childContext));
+        }
+
+        return jmmNode;
+    }
+
+    private void addAttributes(JmmNode jmmNode, ParserRuleContext node, NodeClass nodeClass) {
+        var tokens = parser.getTokenStream();
+        var startPosition = tokens.get(node.getSourceInterval().a);
+        var endPosition = tokens.get(node.getSourceInterval().b);
+
+        jmmNode.put(NodePosition.LINE_START.getKey(), Integer.toString(startPosition.getLine()));
+        jmmNode.put(NodePosition.COL_START.getKey(), Integer.toString(startPosition.getCharPositionInLine()));
+
+        jmmNode.put(NodePosition.LINE_END.getKey(), Integer.toString(endPosition.getLine()));
+        jmmNode.put(NodePosition.COL_END.getKey(), Integer.toString(endPosition.getCharPositionInLine()));
+
+        for (var field : nodeClass.fields()) {
+            var name = field.getName();
+
+            Object value;
+            try {
+                value = field.get(node);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Could not access field '" + name + "' from node " + node);
+            }
+
+            // a label of a token that did not match
+            if (value == null && field.getType().isAssignableFrom(Token.class)) {
+                continue;
+            }
+
+            if (value instanceof ParseTree tree) {
+                jmmNode.putObject(name, tree);
+                replacements.add(() -> replace(jmmNode, name, tree));
+                continue;
+            }
+
+            jmmNode.putObject(name, toAttribute(value));
+        }
+    }
+
+    private void replace(JmmNode node, String attribute, ParseTree tree) {
+        var jmmNode = antlrToJmm.get(tree);
+        if (jmmNode == null) {
+            throw new RuntimeException("Could not find JmmNode for ANTLR node " + tree);
+        }
+
+        while (ignoreList.contains(jmmNode.getKind()) && jmmNode.getNumChildren() == 1) {
+            jmmNode = jmmNode.getJmmChild(0);
+        }
+
+        node.putObject(attribute, jmmNode);
+    }
+
+    private static Object toAttribute(Object value) {
+        // If Token, convert to String
+        if (value instanceof Token token) {
+            return token.getText();
+        }
+
+        // If List, convert elements
+        if (value instanceof List<?> list) {
+            List<Object> elements = new ArrayList<>(list.size());
+            for (var element : list) {
+                elements.add(toAttribute(element));
+            }
+            return elements;
+        }
+
+        // Return as-is
+        return value;
+    }
+}
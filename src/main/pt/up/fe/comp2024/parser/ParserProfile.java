@@ -0,0 +1,40 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.atn.DecisionInfo;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Formats what the parser recorded about each decision of the grammar while profiling, to find the rules whose
+ * alternatives are expensive to tell apart.
+ * <p>
+ * Only the decisions that were made at least once are shown, the slowest first. The lookahead is the largest number of
+ * tokens a prediction had to look at, with SLL and with full LL. A fallback is a prediction that SLL could not make on
+ * its own, and an ambiguity is an input that more than one alternative matches.
+ */
+class ParserProfile {
+
+    private static final String FORMAT = "%-16s %8s %11s %9s %8s %9s %7s %10s%n";
+
+    static String getReport(Parser parser) {
+        var decisions = Arrays.stream(parser.getParseInfo().getDecisionInfo())
+                .filter(decision -> decision.invocations > 0)
+                .sorted(Comparator.comparingLong((DecisionInfo decision) -> decision.timeInPrediction).reversed())
+                .toList();
+
+        var report = new StringBuilder("Parser profile\n");
+        report.append(String.format(FORMAT, "rule", "decision", "invocations", "time (ms)", "SLL look",
+                "fallbacks", "LL look", "ambiguous"));
+
+        for (var decision : decisions) {
+            var rule = parser.getRuleNames()[parser.getATN().decisionToState.get(decision.decision).ruleIndex];
+            report.append(String.format(FORMAT, rule, decision.decision, decision.invocations,
+                    String.format("%.3f", decision.timeInPrediction / 1e6), decision.SLL_MaxLook,
+                    decision.LL_Fallback, decision.LL_MaxLook, decision.ambiguities.size()));
+        }
+
+        return report.toString();
+    }
+}
@@ -5,8 +5,10 @@ import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public class JmmSymbolTable implements SymbolTable {
 
@@ -18,6 +20,7 @@ public class JmmSymbolTable implements SymbolTable {
     private final Map<String, Type> returnTypes;
     private final Map<String, List<Symbol>> params;
     private final Map<String, List<Symbol>> locals;
+    private final Map<String, MethodSummary> summaries = new HashMap<>();
 
     public JmmSymbolTable(List<String> imports,
                           String className,
@@ -79,4 +82,34 @@ public class JmmSymbolTable implements SymbolTable {
     public List<Symbol> getLocalVariables(String methodSignature) {
         return Collections.unmodifiableList(locals.get(methodSignature));
     }
+
+    /**
+     * Adds a method to the table, replacing the entry of any method with the same signature.
+     *
+     * @param methodSignature
+     * @param returnType
+     * @param parameters
+     * @param localVariables
+     */
+    public void putMethod(String methodSignature, Type returnType, List<Symbol> parameters, List<Symbol> localVariables) {
+        if (!methods.contains(methodSignature)) {
+            methods.add(methodSignature);
+        }
+
+        returnTypes.put(methodSignature, returnType);
+        params.put(methodSignature, parameters);
+        locals.put(methodSignature, localVariables);
+    }
+
+    /**
+     * @param methodSignature
+     * @return the side effects of the method, if they were already computed
+     */
+    public Optional<MethodSummary> getMethodSummary(String methodSignature) {
+        return Optional.ofNullable(summaries.get(methodSignature));
+    }
+
+    public void putMethodSummary(String methodSignature, MethodSummary summary) {
+        summaries.put(methodSignature, summary);
+    }
 }
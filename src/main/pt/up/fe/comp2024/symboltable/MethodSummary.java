@@ -0,0 +1,110 @@
+package pt.up.fe.comp2024.symboltable;
+
+/**
+ * Side effects of calling a method of the class, including the effects of every method it calls.
+ */
+public class MethodSummary {
+
+    private boolean readsFields;
+    private boolean writesFields;
+    private boolean writesArrays;
+    private boolean callsImported;
+    private boolean mayNotTerminate;
+    private boolean mayThrow;
+
+    public boolean readsFields() {
+        return readsFields;
+    }
+
+    public boolean writesFields() {
+        return writesFields;
+    }
+
+    public boolean writesArrays() {
+        return writesArrays;
+    }
+
+    public boolean callsImported() {
+        return callsImported;
+    }
+
+    public boolean mayNotTerminate() {
+        return mayNotTerminate;
+    }
+
+    public boolean mayThrow() {
+        return mayThrow;
+    }
+
+    public void setReadsFields() {
+        readsFields = true;
+    }
+
+    public void setWritesFields() {
+        writesFields = true;
+    }
+
+    public void setWritesArrays() {
+        writesArrays = true;
+    }
+
+    public void setCallsImported() {
+        callsImported = true;
+    }
+
+    public void setMayNotTerminate() {
+        mayNotTerminate = true;
+    }
+
+    public void setMayThrow() {
+        mayThrow = true;
+    }
+
+    /**
+     * @return true if a call whose value is not used can be removed
+     */
+    public boolean hasNoSideEffects() {
+        return !writesFields && !writesArrays && !callsImported && !mayNotTerminate && !mayThrow;
+    }
+
+    /**
+     * @return true if the result only depends on the arguments, so calls can also be moved across writes to fields
+     */
+    public boolean isPure() {
+        return hasNoSideEffects() && !readsFields;
+    }
+
+    /**
+     * Adds the effects of another summary, e.g. of a called method, to this one.
+     *
+     * @param other
+     * @return true if this summary changed
+     */
+    public boolean merge(MethodSummary other) {
+        var changed = other.readsFields && !readsFields || other.writesFields && !writesFields
+                || other.writesArrays && !writesArrays || other.callsImported && !callsImported
+                || other.mayNotTerminate && !mayNotTerminate || other.mayThrow && !mayThrow;
+
+        readsFields |= other.readsFields;
+        writesFields |= other.writesFields;
+        writesArrays |= other.writesArrays;
+        callsImported |= other.callsImported;
+        mayNotTerminate |= other.mayNotTerminate;
+        mayThrow |= other.mayThrow;
+
+        return changed;
+    }
+
+    @Override
+    public String toString() {
+        return "MethodSummary{" +
+                "pure=" + isPure() +
+                ", readsFields=" + readsFields +
+                ", writesFields=" + writesFields +
+                ", writesArrays=" + writesArrays +
+                ", callsImported=" + callsImported +
+                ", mayNotTerminate=" + mayNotTerminate +
+                ", mayThrow=" + mayThrow +
+                '}';
+    }
+}
@@ -0,0 +1,70 @@
+package pt.up.fe.comp2024.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.function.Supplier;
+
+/**
+ * Standard output that each thread can send somewhere else.
+ * <p>
+ * The stages print their intermediate results to {@link System#out}, so compilations running at the same time would
+ * mix their output. Once installed, the output printed while running {@link #capture} goes to the given stream and
+ * the rest still goes to the original standard output.
+ */
+public class ThreadOutput extends OutputStream {
+
+    private static final ThreadLocal<OutputStream> TARGET = new ThreadLocal<>();
+
+    private final OutputStream defaultOut;
+
+    private ThreadOutput(OutputStream defaultOut) {
+        this.defaultOut = defaultOut;
+    }
+
+    /**
+     * Replaces the standard output, if it was not replaced yet.
+     */
+    public static synchronized void install() {
+        if (!(System.out instanceof ThreadPrintStream)) {
+            System.setOut(new ThreadPrintStream(new ThreadOutput(System.out)));
+        }
+    }
+
+    public static <T> T capture(OutputStream out, Supplier<T> action) {
+        var previous = TARGET.get();
+        TARGET.set(out);
+        try {
+            return action.get();
+        } finally {
+            System.out.flush();
+            TARGET.set(previous);
+        }
+    }
+
+    private OutputStream getTarget() {
+        var target = TARGET.get();
+        return target != null ? target : defaultOut;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        getTarget().write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        getTarget().write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        getTarget().flush();
+    }
+
+    private static class ThreadPrintStream extends PrintStream {
+        ThreadPrintStream(OutputStream out) {
+            super(out, true);
+        }
+    }
+}
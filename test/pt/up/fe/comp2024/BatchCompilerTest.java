@@ -0,0 +1,150 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BatchCompilerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    static String validClass(String name, int methods) {
+        var code = new StringBuilder("class " + name + " {\n");
+        for (int i = 0; i < methods; i++) {
+            code.append("    public int m").append(i).append("(int a) {\n")
+                    .append("        return a + ").append(i).append(";\n")
+                    .append("    }\n");
+        }
+
+        return code.append("    public static void main(String[] args) {\n")
+                .append("    }\n")
+                .append("}\n").toString();
+    }
+
+    /**
+     * A class with a sum of the given number of terms, which nests as deeply in the AST.
+     */
+    static String deepClass(String name, int terms) {
+        var sum = new StringBuilder("1");
+        for (int i = 1; i < terms; i++) {
+            sum.append(" + ").append(i);
+        }
+
+        return "class " + name + " {\n"
+                + "    public int sum() {\n"
+                + "        return " + sum + ";\n"
+                + "    }\n"
+                + "    public static void main(String[] args) {\n"
+                + "    }\n"
+                + "}\n";
+    }
+
+    static String invalidClass(String name) {
+        return "class " + name + " {\n"
+                + "    public static void main(String[] args) {\n"
+                + "        int a;\n"
+                + "        a = true;\n"
+                + "    }\n"
+                + "}\n";
+    }
+
+    File write(String name, String code) {
+        var file = new File(folder.getRoot(), name + ".jmm");
+        SpecsIo.write(file, code);
+        return file;
+    }
+
+    /**
+     * Splits the output of a batch into the output of each file, in the order they were printed.
+     */
+    static List<String> getSections(String output) {
+        List<String> sections = new ArrayList<>();
+        for (var section : output.split("(?m)^=== ")) {
+            if (!section.isEmpty()) {
+                sections.add(section);
+            }
+        }
+
+        return sections;
+    }
+
+    static String compile(BatchCompiler compiler, List<File> files, boolean expectSuccess) {
+        var output = new ByteArrayOutputStream();
+        var success = compiler.compile(files, CompilerConfig.getDefault(),
+                new PrintStream(output, true, StandardCharsets.UTF_8));
+        var printed = output.toString(StandardCharsets.UTF_8);
+        assertEquals(printed, expectSuccess, success);
+
+        return printed;
+    }
+
+    /**
+     * The first file takes the longest to compile, but the results are still printed in the order of the files.
+     */
+    @Test
+    public void resultsFollowTheOrderOfTheFiles() {
+        List<File> files = List.of(write("Slow", validClass("Slow", 300)), write("Fast1", validClass("Fast1", 2)),
+                write("Fast2", validClass("Fast2", 2)), write("Fast3", validClass("Fast3", 2)));
+
+        var output = compile(new BatchCompiler(4, null), files, true);
+        var sections = getSections(output);
+
+        assertEquals(files.size(), sections.size());
+        for (int i = 0; i < files.size(); i++) {
+            assertTrue(sections.get(i), sections.get(i).startsWith(files.get(i) + " ==="));
+            assertTrue(sections.get(i), sections.get(i).contains("OK " + files.get(i)));
+        }
+        assertTrue(output, output.contains("Compiled 4 files, 0 failed"));
+    }
+
+    /**
+     * The reports of a file are printed with the file, and a file that fails does not stop the others.
+     */
+    @Test
+    public void reportsStayWithTheirFile() {
+        List<File> files = List.of(write("Good", validClass("Good", 2)), write("Bad", invalidClass("Bad")),
+                write("Other", validClass("Other", 2)));
+
+        var output = compile(new BatchCompiler(2, null), files, false);
+        var sections = getSections(output);
+
+        assertEquals(3, sections.size());
+        assertFalse(sections.get(0), sections.get(0).contains("ERROR@"));
+        assertTrue(sections.get(1), sections.get(1).contains("ERROR@semantic"));
+        assertTrue(sections.get(1), sections.get(1).contains("FAILED " + files.get(1)));
+        assertFalse(sections.get(2), sections.get(2).contains("ERROR@"));
+        assertTrue(sections.get(2), sections.get(2).contains("OK " + files.get(2)));
+        assertTrue(output, output.contains("Compiled 3 files, 1 failed"));
+    }
+
+    /**
+     * A file nested too deeply for the recursive passes fails without stopping the batch.
+     */
+    @Test
+    public void stackOverflowOnlyFailsItsFile() {
+        List<File> files = List.of(write("Deep", deepClass("Deep", 100000)),
+                write("Shallow", validClass("Shallow", 2)));
+
+        var output = compile(new BatchCompiler(2, null), files, false);
+        var sections = getSections(output);
+
+        assertEquals(2, sections.size());
+        var error = "FAILED " + files.get(0) + ": " + StackOverflowError.class.getName();
+        assertTrue(sections.get(0), sections.get(0).contains(error));
+        assertTrue(sections.get(1), sections.get(1).contains("OK " + files.get(1)));
+        assertTrue(output, output.contains("Compiled 2 files, 1 failed"));
+    }
+}
@@ -0,0 +1,217 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2024.utils.ThreadOutput;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompileCacheTest {
+
+    private static final String CODE = "import Other;\nclass Main {\n}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Map<String, String> config(String optimize, String registers) {
+        var config = new HashMap<String, String>();
+        config.put("optimize", optimize);
+        config.put("registerAllocation", registers);
+        config.put(CompilerConfig.INPUT_FILE, new File(getSourceDir(), "Main.jmm").getAbsolutePath());
+        return config;
+    }
+
+    private Map<String, String> config() {
+        return config("false", "-1");
+    }
+
+    private File getSourceDir() {
+        var dir = new File(folder.getRoot(), "src");
+        dir.mkdirs();
+        return dir;
+    }
+
+    private CompileCache newCache(long maxBytes) {
+        return new CompileCache(new File(folder.getRoot(), "cache"), maxBytes);
+    }
+
+    private static CompileCache.Entry entry(String className, int outputSize) {
+        return new CompileCache.Entry(className, "x".repeat(outputSize), ".ollir", ".jasmin",
+                List.of(new Report(ReportType.WARNING, Stage.SEMANTIC, 3, 7, "unused variable")));
+    }
+
+    @Test
+    public void keyStability() throws IOException {
+        var cache = newCache(CompileCache.DEFAULT_MAX_BYTES);
+        var key = cache.getKey(CODE, config());
+
+        // the same compilation has the same key in any cache, whatever the options that do not change the result
+        assertEquals(key, cache.getKey(CODE, config()));
+        assertEquals(key, new CompileCache(folder.newFolder(), 1).getKey(CODE, config()));
+        var otherInput = config();
+        otherInput.put(CompilerConfig.INPUT_FILE, new File(folder.getRoot(), "Elsewhere.jmm").getAbsolutePath());
+        assertEquals(key, cache.getKey(CODE, otherInput));
+
+        assertNotEquals(key, cache.getKey(CODE + " ", config()));
+        assertNotEquals(key, cache.getKey(CODE, config("true", "-1")));
+        assertNotEquals(key, cache.getKey(CODE, config("false", "2")));
+    }
+
+    @Test
+    public void hitAndMiss() {
+        var cache = newCache(CompileCache.DEFAULT_MAX_BYTES);
+        var key = cache.getKey(CODE, config());
+
+        assertFalse(cache.lookup(key, config()).isPresent());
+
+        var stored = entry("Main", 10);
+        cache.store(key, config(), List.of(), stored);
+
+        var found = cache.lookup(key, config()).orElseThrow();
+        assertEquals(stored.className(), found.className());
+        assertEquals(stored.output(), found.output());
+        assertEquals(stored.ollirCode(), found.ollirCode());
+        assertEquals(stored.jasminCode(), found.jasminCode());
+
+        assertEquals(1, found.reports().size());
+        var report = found.reports().get(0);
+        assertEquals(ReportType.WARNING, report.getType());
+        assertEquals(Stage.SEMANTIC, report.getStage());
+        assertEquals(3, report.getLine());
+        assertEquals(7, report.getColumn());
+        assertEquals("unused variable", report.getMessage());
+
+        assertFalse(cache.lookup(cache.getKey(CODE, config("true", "-1")), config()).isPresent());
+    }
+
+    @Test
+    public void changedImportsInvalidateTheEntry() throws IOException {
+        var cache = newCache(CompileCache.DEFAULT_MAX_BYTES);
+        var key = cache.getKey(CODE, config());
+        var other = new File(getSourceDir(), "Other.jmm");
+        var library = new File(getSourceDir(), "pkg/Lib.class");
+
+        SpecsIo.write(other, "class Other {\n}\n");
+        cache.store(key, config(), List.of("Other", "pkg.Lib"), entry("Main", 10));
+        assertTrue(cache.lookup(key, config()).isPresent());
+
+        SpecsIo.write(other, "class Other {\n    int a;\n}\n");
+        assertFalse(cache.lookup(key, config()).isPresent());
+
+        // the manifest keeps the contents of the imports, not when they changed
+        SpecsIo.write(other, "class Other {\n}\n");
+        assertTrue(cache.lookup(key, config()).isPresent());
+
+        // a class that appears next to the file changes the import as well
+        Files.createDirectories(library.getParentFile().toPath());
+        Files.write(library.toPath(), new byte[]{(byte) 0xCA, (byte) 0xFE});
+        assertFalse(cache.lookup(key, config()).isPresent());
+
+        // storing the entry again records the new imports
+        cache.store(key, config(), List.of("Other", "pkg.Lib"), entry("Main", 10));
+        assertTrue(cache.lookup(key, config()).isPresent());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws IOException {
+        var cacheDir = new File(folder.getRoot(), "cache");
+        var entrySize = getEntrySize();
+
+        // room for three entries but not four
+        var cache = new CompileCache(cacheDir, entrySize * 3 + entrySize / 2);
+        var keys = List.of("a", "b", "c", "d").stream()
+                .map(name -> cache.getKey(CODE + name, config()))
+                .toList();
+
+        var now = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            cache.store(keys.get(i), config(), List.of(), entry("Main", 100));
+            Files.setLastModifiedTime(new File(cacheDir, keys.get(i)).toPath(),
+                    FileTime.fromMillis(now - (3 - i) * 10_000L));
+        }
+
+        // using the oldest entry makes the second one the least recently used
+        assertTrue(cache.lookup(keys.get(0), config()).isPresent());
+        cache.store(keys.get(3), config(), List.of(), entry("Main", 100));
+
+        assertTrue(cache.lookup(keys.get(0), config()).isPresent());
+        assertFalse(cache.lookup(keys.get(1), config()).isPresent());
+        assertFalse(new File(cacheDir, keys.get(1)).exists());
+        assertTrue(cache.lookup(keys.get(2), config()).isPresent());
+        assertTrue(cache.lookup(keys.get(3), config()).isPresent());
+    }
+
+    /**
+     * @return the number of bytes an entry of the eviction test takes in the cache
+     */
+    private long getEntrySize() throws IOException {
+        var cacheDir = folder.newFolder();
+        var cache = new CompileCache(cacheDir, CompileCache.DEFAULT_MAX_BYTES);
+        var key = cache.getKey(CODE, config());
+        cache.store(key, config(), List.of(), entry("Main", 100));
+
+        try (var files = Files.walk(new File(cacheDir, key).toPath())) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    /**
+     * Compiles the file with the options and returns what the compilation printed.
+     */
+    private static String compile(JmmCompiler compiler, File file, String... options) {
+        var args = new ArrayList<String>();
+        args.add("-i=" + file.getAbsolutePath());
+        args.addAll(List.of(options));
+        var config = CompilerConfig.parseArgs(args.toArray(String[]::new));
+
+        ThreadOutput.install();
+        var output = new ByteArrayOutputStream();
+        ThreadOutput.capture(output, () -> compiler.compile(config, new ArrayList<>()));
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void parserProfileIsNotCached() {
+        var file = new File(getSourceDir(), "Main.jmm");
+        SpecsIo.write(file, "class Main {\n    public static void main(String[] args) {\n    }\n}\n");
+        var compiler = new JmmCompiler(newCache(CompileCache.DEFAULT_MAX_BYTES));
+
+        // the profile is of the parse of each compilation, so it is never replayed from the cache
+        assertTrue(compile(compiler, file, "-f").contains("Parser profile"));
+        assertFalse(compile(compiler, file).contains("Parser profile"));
+        assertTrue(compile(compiler, file, "-f").contains("Parser profile"));
+    }
+
+    @Test
+    public void writtenAstIsNotCached() {
+        var file = new File(getSourceDir(), "Main.jmm");
+        var ast = new File(getSourceDir(), "Main.jmmast");
+        SpecsIo.write(file, "class Main {\n    public static void main(String[] args) {\n    }\n}\n");
+        var compiler = new JmmCompiler(newCache(CompileCache.DEFAULT_MAX_BYTES));
+
+        // a compilation that was cached before still parses the file to write its AST
+        compile(compiler, file);
+        assertFalse(ast.exists());
+        compile(compiler, file, "-a");
+        assertTrue(ast.isFile());
+    }
+}
@@ -0,0 +1,170 @@
+package pt.up.fe.comp2024;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompilerDaemonTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private int port;
+    private CompilerDaemon daemon;
+    private Thread daemonThread;
+
+    @Before
+    public void startDaemon() throws IOException {
+        try (var socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            port = socket.getLocalPort();
+        }
+
+        daemon = new CompilerDaemon(port);
+        daemonThread = new Thread(() -> {
+            try {
+                daemon.run();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        daemonThread.start();
+    }
+
+    @After
+    public void stopDaemon() throws IOException, InterruptedException {
+        daemon.stop();
+        daemonThread.join(10_000);
+    }
+
+    File write(String name, String code) {
+        var file = new File(folder.getRoot(), name + ".jmm");
+        SpecsIo.write(file, code);
+        return file;
+    }
+
+    /**
+     * Sends the options of a request and reads the response until the daemon closes the connection.
+     */
+    List<String> request(String... args) throws IOException, InterruptedException {
+        try (var socket = connect()) {
+            var out = new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+            for (var arg : args) {
+                out.println(arg);
+            }
+            out.println();
+
+            var in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            List<String> lines = new ArrayList<>();
+            for (var line = in.readLine(); line != null; line = in.readLine()) {
+                lines.add(line);
+            }
+            return lines;
+        }
+    }
+
+    /**
+     * The daemon starts listening on its own thread, so the first connections may come before it does.
+     */
+    Socket connect() throws IOException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return new Socket(InetAddress.getLoopbackAddress(), port);
+            } catch (ConnectException e) {
+                if (attempt == 100) {
+                    throw e;
+                }
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    /**
+     * Checks that the response ends with the exit code, and that nothing else looks like the end of the response.
+     */
+    static void assertExitCode(int exitCode, List<String> response) {
+        assertFalse(response.isEmpty());
+        assertEquals(CompilerDaemon.END_OF_RESPONSE + exitCode, response.get(response.size() - 1));
+
+        for (var line : response.subList(0, response.size() - 1)) {
+            assertFalse(line, line.startsWith(CompilerDaemon.END_OF_RESPONSE));
+        }
+    }
+
+    @Test
+    public void compileResponse() throws Exception {
+        var file = write("Valid", BatchCompilerTest.validClass("Valid", 2));
+
+        var response = request("-i=" + file.getAbsolutePath());
+
+        assertExitCode(0, response);
+        assertTrue(String.join("\n", response), response.contains(".class Valid"));
+    }
+
+    @Test
+    public void failedCompileResponse() throws Exception {
+        var file = write("Invalid", BatchCompilerTest.invalidClass("Invalid"));
+
+        var response = request("-i=" + file.getAbsolutePath());
+        assertExitCode(1, response);
+        assertTrue(String.join("\n", response), String.join("\n", response).contains("ERROR@semantic"));
+
+        var missing = new File(folder.getRoot(), "Missing.jmm");
+        response = request("-i=" + missing.getAbsolutePath());
+        assertExitCode(1, response);
+        assertTrue(String.join("\n", response), response.get(0).contains("Could not find input file"));
+
+        // a request without options has no input file
+        assertExitCode(1, request());
+    }
+
+    @Test
+    public void metricsResponse() throws Exception {
+        var valid = write("Valid", BatchCompilerTest.validClass("Valid", 2));
+        var invalid = write("Invalid", BatchCompilerTest.invalidClass("Invalid"));
+        assertExitCode(0, request("-i=" + valid.getAbsolutePath()));
+        assertExitCode(1, request("-i=" + invalid.getAbsolutePath()));
+
+        var response = request("-s");
+
+        assertExitCode(0, response);
+        // the request for the metrics is the one in flight
+        assertEquals(List.of("requests: 2", "failed: 1", "in flight: 1"), response.subList(0, 3));
+        assertEquals(8, response.size());
+        for (var line : response.subList(3, 7)) {
+            assertTrue(line, line.matches("(mean|max) (queue time|latency): \\d+\\.\\d{3}ms"));
+        }
+    }
+
+    @Test
+    public void clientReturnsExitCode() throws Exception {
+        var valid = write("Valid", BatchCompilerTest.validClass("Valid", 2));
+        var invalid = write("Invalid", BatchCompilerTest.invalidClass("Invalid"));
+
+        // waits for the daemon to listen
+        request("-s");
+
+        var client = new CompilerClient(port);
+        assertEquals(0, client.compile(new String[]{"-i=" + valid.getAbsolutePath(), "-c=" + port}));
+        assertEquals(1, client.compile(new String[]{"-i=" + invalid.getAbsolutePath(), "-c=" + port}));
+    }
+}
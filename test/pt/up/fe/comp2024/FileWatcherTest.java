@@ -0,0 +1,141 @@
+package pt.up.fe.comp2024;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class FileWatcherTest {
+
+    private static final long TIMEOUT_MILLIS = 30_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    private Thread watcher;
+
+    private File write(String name, String code) {
+        var file = new File(folder.getRoot(), name + ".jmm");
+        SpecsIo.write(file, code);
+        return file;
+    }
+
+    /**
+     * Starts watching the root and waits for the first compilation of its files.
+     */
+    private void watch(File root) {
+        var out = new PrintStream(output, true, StandardCharsets.UTF_8);
+        watcher = new Thread(() -> {
+            try {
+                new FileWatcher(List.of(root), null, out).run(CompilerConfig.getDefault());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        watcher.start();
+
+        waitFor(printed -> printed.contains("Watching "));
+    }
+
+    @After
+    public void stopWatching() throws InterruptedException {
+        if (watcher != null) {
+            watcher.interrupt();
+            watcher.join(TIMEOUT_MILLIS);
+        }
+    }
+
+    private void waitFor(Predicate<String> condition) {
+        var deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.test(output.toString(StandardCharsets.UTF_8))) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting for the watcher, which printed:\n" + output.toString(StandardCharsets.UTF_8));
+            }
+
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted while waiting for the watcher");
+            }
+        }
+    }
+
+    /**
+     * Waits long enough for the watcher to compile anything it would compile after the last change.
+     */
+    private static void settle() throws InterruptedException {
+        Thread.sleep(FileWatcher.DEBOUNCE_MILLIS * 20);
+    }
+
+    private int countCompiled(File file) {
+        return output.toString(StandardCharsets.UTF_8).split("OK " + file.getAbsolutePath() + " ", -1).length - 1;
+    }
+
+    /**
+     * Several writes of a file in a row, like the ones of an editor saving it, compile the file once.
+     */
+    @Test
+    public void burstOfWritesCompilesOnce() throws InterruptedException {
+        var file = write("Burst", BatchCompilerTest.validClass("Burst", 1));
+        watch(folder.getRoot());
+        assertEquals(1, countCompiled(file));
+
+        for (int i = 2; i <= 5; i++) {
+            write("Burst", BatchCompilerTest.validClass("Burst", i));
+        }
+
+        waitFor(printed -> countCompiled(file) >= 2);
+        settle();
+        assertEquals(output.toString(StandardCharsets.UTF_8), 2, countCompiled(file));
+    }
+
+    /**
+     * A file given as a root is the only one watched, although the events come from its whole directory.
+     */
+    @Test
+    public void singleFileRoot() throws InterruptedException {
+        var watched = write("Watched", BatchCompilerTest.validClass("Watched", 1));
+        var other = write("Other", BatchCompilerTest.validClass("Other", 1));
+        watch(watched);
+        assertEquals(1, countCompiled(watched));
+        assertEquals(0, countCompiled(other));
+
+        write("Other", BatchCompilerTest.validClass("Other", 2));
+        write("Watched", BatchCompilerTest.validClass("Watched", 2));
+
+        waitFor(printed -> countCompiled(watched) >= 2);
+        settle();
+        assertEquals(0, countCompiled(other));
+    }
+
+    /**
+     * A file too deep for the stack fails its compilation, and the watcher goes on compiling the next changes.
+     */
+    @Test
+    public void stackOverflowKeepsWatching() {
+        var file = write("Deep", BatchCompilerTest.validClass("Deep", 1));
+        watch(folder.getRoot());
+
+        write("Deep", BatchCompilerTest.deepClass("Deep", 100000));
+        waitFor(printed -> printed.contains("FAILED " + file.getAbsolutePath()));
+
+        write("Deep", BatchCompilerTest.validClass("Deep", 2));
+        waitFor(printed -> countCompiled(file) >= 2);
+    }
+}
@@ -0,0 +1,148 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.comp2024.utils.ThreadOutput;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IncrementalCompileTest {
+
+    private static final String BASE = """
+            import io;
+            class Counter {
+                int total;
+                public int add(int a) {
+                    total = total + a;
+                    return total;
+                }
+                public int twice(int a) {
+                    return this.add(a) + this.add(a);
+                }
+                public int square(int a) {
+                    return a * a;
+                }
+                public static void main(String[] args) {
+                    Counter c;
+                    c = new Counter();
+                    io.println(c.twice(3));
+                    io.println(c.square(4));
+                }
+            }
+            """;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private JmmCompiler compiler;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "Counter.jmm");
+        compiler = new JmmCompiler(null, new IncrementalCache());
+        ThreadOutput.install();
+    }
+
+    /**
+     * Compiles the new version of the file incrementally, checks that the result is the same as compiling the whole
+     * file, and returns how many methods were compiled again.
+     */
+    private String recompile(String code) {
+        SpecsIo.write(file, code);
+        var config = CompilerConfig.parseArgs(new String[]{"-i=" + file.getAbsolutePath(), "-n"});
+
+        var output = new ByteArrayOutputStream();
+        var incremental = ThreadOutput.capture(output, () -> compiler.compile(config, new ArrayList<>()));
+        var full = ThreadOutput.capture(new ByteArrayOutputStream(),
+                () -> new JmmCompiler().compile(config, new ArrayList<>()));
+
+        assertEquals(full.getJasminCode(), incremental.getJasminCode());
+
+        return output.toString(StandardCharsets.UTF_8).lines()
+                .filter(line -> line.startsWith("Recompiled"))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    public void bodyEdit() {
+        assertEquals("Recompiled 4 of 4 methods", recompile(BASE));
+        assertEquals("Recompiled 1 of 4 methods", recompile(BASE.replace("return a * a;", "return a * a + 1;")));
+    }
+
+    @Test
+    public void signatureChangeRecompilesCallers() {
+        recompile(BASE);
+
+        // twice calls add, whose parameter changed type
+        var code = BASE.replace("public int add(int a) {\n        total = total + a;",
+                "public int add(boolean a) {\n        total = total + 1;")
+                .replace("return this.add(a) + this.add(a);", "return this.add(true) + this.add(false);");
+        assertEquals("Recompiled 2 of 4 methods", recompile(code));
+
+        // only the callers of the method whose signature changed are compiled again
+        code = code.replace("public int add(boolean a)", "public int add(boolean a, int b)")
+                .replace("this.add(true) + this.add(false)", "this.add(true, a) + this.add(false, a)");
+        assertEquals("Recompiled 2 of 4 methods", recompile(code));
+    }
+
+    @Test
+    public void addedAndRemovedMethods() {
+        recompile(BASE);
+
+        var added = BASE.replace("    public static void main", """
+                    public int cube(int a) {
+                        return a * this.square(a);
+                    }
+                    public static void main""");
+        assertEquals("Recompiled 1 of 5 methods", recompile(added));
+
+        // main calls the new method
+        var called = added.replace("io.println(c.square(4));", "io.println(c.cube(4));");
+        assertEquals("Recompiled 1 of 5 methods", recompile(called));
+
+        // removing a method compiles again the methods that called it
+        var removed = called.replace("""
+                    public int square(int a) {
+                        return a * a;
+                    }
+                """, "").replace("return a * this.square(a);", "return a * a * a;");
+        assertEquals("Recompiled 1 of 4 methods", recompile(removed));
+    }
+
+    @Test
+    public void headerChangeRecompilesEverything() {
+        recompile(BASE);
+
+        assertEquals("Recompiled 4 of 4 methods", recompile(BASE.replace("int total;", "int total;\n    int other;")));
+        assertEquals("Recompiled 4 of 4 methods", recompile("import Other;\n" + BASE));
+    }
+
+    @Test
+    public void syntaxErrorThenFix() {
+        recompile(BASE);
+
+        SpecsIo.write(file, BASE.replace("return a * a;", "return a * ;"));
+        var config = CompilerConfig.parseArgs(new String[]{"-i=" + file.getAbsolutePath(), "-n"});
+        try {
+            ThreadOutput.capture(new ByteArrayOutputStream(), () -> compiler.compile(config, new ArrayList<>()));
+            fail("Expected a syntax error");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("ERROR@syntatic"));
+        }
+
+        // the fix is compared with the last version that compiled
+        assertEquals("Recompiled 1 of 4 methods", recompile(BASE.replace("return a * a;", "return a * a * a;")));
+    }
+}
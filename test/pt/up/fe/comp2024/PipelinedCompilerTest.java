@@ -0,0 +1,122 @@
+package pt.up.fe.comp2024;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PipelinedCompilerTest {
+
+    private static final int STAGES = 5;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    File write(String name, String code) {
+        var file = new File(folder.getRoot(), name + ".jmm");
+        SpecsIo.write(file, code);
+        return file;
+    }
+
+    static String compile(PipelinedCompiler compiler, List<File> files, boolean expectSuccess) {
+        var output = new ByteArrayOutputStream();
+        var success = compiler.compile(files, CompilerConfig.getDefault(),
+                new PrintStream(output, true, StandardCharsets.UTF_8));
+        var printed = output.toString(StandardCharsets.UTF_8);
+        assertEquals(printed, expectSuccess, success);
+
+        return printed;
+    }
+
+    /**
+     * With several threads in each stage the files finish out of order, but they are printed in the order given.
+     */
+    @Test
+    public void resultsFollowTheOrderOfTheFiles() {
+        List<File> files = new ArrayList<>();
+        files.add(write("Slow", BatchCompilerTest.validClass("Slow", 300)));
+        for (int i = 0; i < 6; i++) {
+            files.add(write("Fast" + i, BatchCompilerTest.validClass("Fast" + i, 1)));
+        }
+        files.add(write("Bad", BatchCompilerTest.invalidClass("Bad")));
+
+        var compiler = new PipelinedCompiler(new int[]{3, 3, 3, 3, 3}, 4, null);
+        var output = compile(compiler, files, false);
+        var sections = BatchCompilerTest.getSections(output);
+
+        assertEquals(files.size(), sections.size());
+        for (int i = 0; i < files.size(); i++) {
+            assertTrue(sections.get(i), sections.get(i).startsWith(files.get(i) + " ==="));
+        }
+        assertTrue(sections.get(files.size() - 1), sections.get(files.size() - 1).contains("ERROR@semantic"));
+        assertTrue(output, output.contains("Compiled 8 files, 1 failed"));
+    }
+
+    /**
+     * However fast the parser is, it never gets more files ahead of the other stages than the queues hold.
+     */
+    @Test
+    public void queuesBoundTheFilesInFlight() {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            files.add(write("File" + i, BatchCompilerTest.validClass("File" + i, 20)));
+        }
+
+        var compiler = new PipelinedCompiler(new int[]{1, 1, 1, 1, 1}, 1, null);
+        compile(compiler, files, true);
+
+        // one file in each stage and one in each queue between two stages
+        var bound = STAGES + (STAGES - 1);
+        assertTrue("At most " + bound + " files in flight, got " + compiler.getMaxJobsInStages(),
+                compiler.getMaxJobsInStages() <= bound);
+    }
+
+    @Test
+    public void stageThreads() {
+        assertArrayEquals(new int[]{2, 2, 2, 2, 2}, PipelinedCompiler.parseStageThreads("2"));
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5}, PipelinedCompiler.parseStageThreads("1,2,3,4,5"));
+
+        for (var invalid : List.of("0", "1,2", "1,2,3,4,5,6", "1,1,0,1,1", "-1", "two", "1,", "")) {
+            try {
+                PipelinedCompiler.parseStageThreads(invalid);
+                fail("Expected '" + invalid + "' to be rejected");
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("'" + invalid + "'"));
+            }
+        }
+    }
+
+    /**
+     * An error that is not an exception, here thrown by the cache, fails the file instead of stopping its stage.
+     */
+    @Test(timeout = 60_000)
+    public void errorFailsTheFile() {
+        var cache = new CompileCache(new File(folder.getRoot(), "cache"), CompileCache.DEFAULT_MAX_BYTES) {
+            @Override
+            public Optional<Entry> lookup(String key, Map<String, String> config) {
+                throw new AssertionError("broken cache");
+            }
+        };
+        var files = List.of(write("First", BatchCompilerTest.validClass("First", 1)),
+                write("Second", BatchCompilerTest.validClass("Second", 1)));
+
+        var output = compile(new PipelinedCompiler(new int[]{1, 1, 1, 1, 1}, 1, cache), files, false);
+
+        assertTrue(output, output.contains("broken cache"));
+        assertTrue(output, output.contains("Compiled 2 files, 2 failed"));
+    }
+}
@@ -0,0 +1,49 @@
+package pt.up.fe.comp2024.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares ASTs node by node, with the kind, hierarchy, attributes and positions of each node.
+ */
+public class AstAssert {
+
+    public static void assertSameTree(JmmNode expected, JmmNode actual) {
+        assertSameTree(expected, actual, "");
+    }
+
+    private static void assertSameTree(JmmNode expected, JmmNode actual, String path) {
+        var where = path + "/" + expected.getKind();
+        assertEquals(where, expected.getKind(), actual.getKind());
+        assertEquals(where, new ArrayList<>(expected.getHierarchy()), new ArrayList<>(actual.getHierarchy()));
+        assertEquals(where, new HashSet<>(expected.getAttributes()), new HashSet<>(actual.getAttributes()));
+
+        for (var attribute : expected.getAttributes()) {
+            var expectedValue = expected.getObject(attribute);
+            var actualValue = actual.getObject(attribute);
+
+            // nodes held by attributes are compared by where they are, their subtree is compared as a child
+            if (expectedValue instanceof JmmNode expectedNode && actualValue instanceof JmmNode actualNode) {
+                assertEquals(where + "." + attribute, describe(expectedNode), describe(actualNode));
+                continue;
+            }
+
+            assertEquals(where + "." + attribute, expectedValue, actualValue);
+        }
+
+        assertEquals(where, expected.getNumChildren(), actual.getNumChildren());
+        for (int i = 0; i < expected.getNumChildren(); i++) {
+            assertSameTree(expected.getJmmChild(i), actual.getJmmChild(i), where + "[" + i + "]");
+        }
+    }
+
+    private static String describe(JmmNode node) {
+        return node.getKind() + "@" + node.getOptional(NodePosition.LINE_START.getKey()).orElse("?") + ":"
+                + node.getOptional(NodePosition.COL_START.getKey()).orElse("?");
+    }
+}
@@ -0,0 +1,120 @@
+package pt.up.fe.comp2024.ast;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AstWriterTest {
+
+    @Test
+    public void roundTripOfParsedProgram() {
+        var code = SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/MySemanticTest.jmm");
+        var root = TestUtils.parse(code).getRootNode();
+
+        AstAssert.assertSameTree(root, AstReader.read(AstWriter.toBytes(root)));
+    }
+
+    @Test
+    public void roundTripOfEveryValue() {
+        var root = new JmmNodeImpl("NotAKind");
+        root.putObject("string", "text");
+        root.putObject("empty", "");
+        root.putObject("true", true);
+        root.putObject("false", false);
+        root.putObject("zero", 0);
+        root.putObject("negative", -300);
+        root.putObject("max", Integer.MAX_VALUE);
+        root.putObject("min", Integer.MIN_VALUE);
+        root.putObject("names", List.of("io", "println"));
+        root.putObject("type", new Type("int", true));
+
+        var child = new JmmNodeImpl(Kind.METHOD_DECL.getNodeName());
+        child.setHierarchy(List.of(Kind.METHOD_DECL.getNodeName(), "Decl"));
+        child.putObject("name", "text");
+        root.add(child);
+        child.add(new JmmNodeImpl(Kind.INTEGER_LITERAL.getNodeName()));
+
+        AstAssert.assertSameTree(root, AstReader.read(AstWriter.toBytes(root)));
+    }
+
+    @Test
+    public void badMagic() {
+        var bytes = AstWriter.toBytes(new JmmNodeImpl("Node"));
+        bytes[0] = 'X';
+
+        assertRejected(bytes, "Not a binary AST");
+        assertRejected(new byte[]{'J', 'M'}, "Not a binary AST");
+    }
+
+    @Test
+    public void badVersion() {
+        assertRejected(header(AstWriter.VERSION + 1, AstWriter.KINDS_HASH), "Unsupported binary AST version");
+    }
+
+    @Test
+    public void otherKinds() {
+        assertRejected(header(AstWriter.VERSION, AstWriter.KINDS_HASH + 1), "other node kinds");
+    }
+
+    @Test
+    public void truncated() {
+        // the continuation bit of the version is set, but no byte follows
+        var bytes = Arrays.copyOf(AstWriter.MAGIC, AstWriter.MAGIC.length + 1);
+        bytes[AstWriter.MAGIC.length] = (byte) 0x80;
+        assertRejected(bytes, "Truncated binary AST");
+
+        var code = SpecsIo.getResource("pt/up/fe/comp/cp2/semanticanalysis/MySemanticTest.jmm");
+        var full = AstWriter.toBytes(TestUtils.parse(code).getRootNode());
+        for (var length : List.of(full.length - 1, full.length / 2, AstWriter.MAGIC.length + 3)) {
+            assertRejected(Arrays.copyOf(full, length), "Truncated binary AST");
+        }
+    }
+
+    @Test
+    public void corruptedIndex() {
+        // one kind that is not in Kind, whose name is a string that is not in the empty dictionary
+        var out = new ByteArrayOutputStream();
+        out.writeBytes(header(AstWriter.VERSION, AstWriter.KINDS_HASH));
+        writeVarint(out, 0);
+        writeVarint(out, AstWriter.OTHER_KIND);
+        writeVarint(out, 5);
+
+        assertRejected(out.toByteArray(), "Unknown string 5");
+    }
+
+    private static byte[] header(int version, int kindsHash) {
+        var out = new ByteArrayOutputStream();
+        out.writeBytes(AstWriter.MAGIC);
+        writeVarint(out, version);
+        writeVarint(out, kindsHash);
+        return out.toByteArray();
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.write(value);
+    }
+
+    private static void assertRejected(byte[] bytes, String message) {
+        try {
+            AstReader.read(bytes);
+            fail("Expected the input to be rejected with '" + message + "'");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package pt.up.fe.comp2024.backend;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JasminGeneratorTest {
+
+    private static final String RESOURCES = "pt/up/fe/comp2024/backend/jasmin/";
+
+    /**
+     * Every label of an instruction is emitted, so a jump to any of them finds it.
+     */
+    @Test
+    public void sharedLabels() {
+        var ollirResult = new OllirResult(SpecsIo.getResource(RESOURCES + "SharedLabels.ollir"), Collections.emptyMap());
+
+        var result = TestUtils.backend(ollirResult);
+        var jasmin = result.getJasminCode();
+        assertTrue(jasmin, jasmin.contains("first:"));
+        assertTrue(jasmin, jasmin.contains("second:"));
+
+        assertEquals("3", result.run().trim());
+    }
+
+    /**
+     * The stored value is loaded once, after the reference and the index of the array.
+     */
+    @Test
+    public void arrayStoreLoadsValueOnce() {
+        var ollirResult = new OllirResult(SpecsIo.getResource(RESOURCES + "ArrayStore.ollir"), Collections.emptyMap());
+
+        var result = TestUtils.backend(ollirResult);
+        var method = Pattern.compile("\\.method public static store\\(\\[II\\)I.*?\\.end method", Pattern.DOTALL)
+                .matcher(result.getJasminCode());
+        assertTrue(result.getJasminCode(), method.find());
+        assertTrue(method.group(), method.group().contains("aload_0\n   iconst_1\n   iload_1\n   iastore"));
+        assertEquals(method.group(), 1, method.group().split("iload_1").length - 1);
+
+        assertEquals("7", result.run().trim());
+    }
+
+    /**
+     * For each operator of the comparisons, its name in the methods of ZeroCompares.ollir, the jump used when the zero
+     * is on the right and on the left, and the results for -1, 0 and 1 as printed by the program.
+     */
+    private static final String[][] ZERO_COMPARES = {
+            {"lt", "iflt", "ifgt", "100", "1"},
+            {"ge", "ifge", "ifle", "11", "110"},
+            {"le", "ifle", "ifge", "110", "11"},
+            {"gt", "ifgt", "iflt", "1", "100"},
+            {"eq", "ifeq", "ifeq", "10", "10"},
+            {"ne", "ifne", "ifne", "101", "101"},
+    };
+
+    /**
+     * Comparisons against the literal 0, in branches and as values, only load the other operand and use the jump that
+     * compares it with zero, reversing the operator when the zero is on the left.
+     */
+    @Test
+    public void zeroCompares() {
+        var ollirResult = new OllirResult(SpecsIo.getResource(RESOURCES + "ZeroCompares.ollir"), Collections.emptyMap());
+
+        var result = TestUtils.backend(ollirResult);
+        var jasmin = result.getJasminCode();
+        var expectedOutput = new StringBuilder();
+        for (var compare : ZERO_COMPARES) {
+            var name = compare[0];
+            assertJump(jasmin, name + "Right", compare[1]);
+            assertJump(jasmin, name + "Left", compare[2]);
+            assertJump(jasmin, name + "RightValue", compare[1]);
+            assertJump(jasmin, name + "LeftValue", compare[2]);
+            expectedOutput.append(compare[3]).append("\n").append(compare[4]).append("\n")
+                    .append(compare[3]).append("\n").append(compare[4]).append("\n");
+        }
+
+        assertEquals(expectedOutput.toString().trim(), result.run().trim().replace("\r\n", "\n"));
+    }
+
+    private static void assertJump(String jasmin, String methodName, String jump) {
+        var method = Pattern.compile("\\.method public static " + methodName + "\\(I\\)I.*?\\.end method", Pattern.DOTALL)
+                .matcher(jasmin);
+        assertTrue(jasmin, method.find());
+        assertTrue(method.group(), method.group().contains(jump + " "));
+        assertFalse(method.group(), method.group().contains("if_icmp"));
+    }
+}
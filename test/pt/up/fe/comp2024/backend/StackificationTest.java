@@ -0,0 +1,43 @@
+package pt.up.fe.comp2024.backend;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StackificationTest {
+
+    private static final String RESOURCES = "pt/up/fe/comp2024/backend/stackify/";
+
+    /**
+     * Variables of the program named like the temporaries keep their own register and value.
+     */
+    @Test
+    public void localsNamedLikeTempsKeepTheirValue() {
+        var code = SpecsIo.getResource(RESOURCES + "TempNamedLocals.jmm");
+
+        var output = TestUtils.backend(code).runWithFullOutput();
+        assertEquals("49\n5", output.getStdOut().trim().replace("\r\n", "\n"));
+    }
+
+    /**
+     * When the right operand needs more temporaries it is computed first, so the left one stays on the stack: only the
+     * two products and the sum on the right are stored.
+     */
+    @Test
+    public void heavierOperandFirstLeavesLeftOnStack() {
+        var code = SpecsIo.getResource(RESOURCES + "HeavierOperandFirst.jmm");
+
+        var result = TestUtils.backend(code);
+        var method = Pattern.compile("\\.method public static combine\\(IIIIII\\)I.*?\\.end method", Pattern.DOTALL)
+                .matcher(result.getJasminCode());
+        assertTrue(method.find());
+        assertEquals(method.group(), 3, method.group().split("istore").length - 1);
+
+        assertEquals("-56", result.runWithFullOutput().getStdOut().trim());
+    }
+}
@@ -0,0 +1,103 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.ReportType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.count;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.getCode;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.getOllirMethod;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.optimize;
+
+public class AlgebraicSimplificationTest {
+
+    private static OllirResult result;
+
+    @BeforeClass
+    public static void optimizeCode() {
+        result = TestUtils.optimize(getCode("algebra/Algebra.jmm"), optimize());
+    }
+
+    private static String getMethod(String header) {
+        return getOllirMethod(result.getOllirCode(), header);
+    }
+
+    @Test
+    public void identities() {
+        var method = getMethod("public static identities");
+        assertTrue(method, method.contains("ret.i32 x.i32;"));
+    }
+
+    /**
+     * The operands that are dropped are only pure expressions, so the calls are kept even when their value is not
+     * needed.
+     */
+    @Test
+    public void absorbingOperandsOnlyDropPureExpressions() {
+        var pure = getMethod("public static pureZero");
+        assertTrue(pure, pure.contains("ret.i32 0.i32;"));
+
+        var lessThan = getMethod("public static lessThanItself");
+        assertTrue(lessThan, lessThan.contains("ret.bool 0.bool;"));
+
+        var impure = getMethod("public impureZero");
+        assertEquals(impure, 3, count(impure, "\"bump\""));
+        assertTrue(impure, impure.contains("*.i32 0.i32"));
+        assertTrue(impure, impure.contains("-.i32"));
+    }
+
+    /**
+     * A division by zero throws, so neither the division nor the product with zero around it is removed.
+     */
+    @Test
+    public void divisionByZeroKept() {
+        var method = getMethod("public static divideByZero");
+        assertTrue(method, method.contains("x.i32 /.i32 0.i32"));
+        assertTrue(method, method.contains("*.i32 0.i32"));
+    }
+
+    @Test
+    public void reassociation() {
+        var method = getMethod("public static reassociate");
+        assertTrue(method, method.contains("x.i32 +.i32 5.i32"));
+        assertTrue(method, method.contains("x.i32 *.i32 24.i32"));
+    }
+
+    @Test
+    public void negations() {
+        var notNot = getMethod("public static notNot");
+        assertTrue(notNot, notNot.contains("ret.bool b.bool;"));
+
+        // folded by ConstantFolding, which must recognize the '!' of the parser
+        var notFalse = getMethod("public static notFalse");
+        assertTrue(notFalse, notFalse.contains("ret.bool 1.bool;"));
+    }
+
+    /**
+     * The hits of the rules are a log report of the compilation.
+     */
+    @Test
+    public void ruleHitsReported() {
+        var log = result.getReports().stream()
+                .filter(report -> report.getType() == ReportType.LOG)
+                .filter(report -> report.getMessage().startsWith("Algebraic simplification rule hits: "))
+                .findFirst();
+        assertTrue(result.getReports().toString(), log.isPresent());
+        assertTrue(log.get().getMessage(), log.get().getMessage().contains("(x+c1)+c2="));
+    }
+
+    @Test
+    public void sameOutput() {
+        var code = getCode("algebra/Algebra.jmm");
+
+        var expected = TestUtils.backend(code).runWithFullOutput();
+        var output = TestUtils.backend(code, optimize()).runWithFullOutput();
+        assertEquals("7\n0\n-1\n3\n0\n180\n1\n1", output.getStdOut().trim().replace("\r\n", "\n"));
+        assertEquals(expected.getStdOut(), output.getStdOut());
+        assertTrue(output.getStdErr(), output.getStdErr().contains("ArithmeticException"));
+    }
+}
@@ -0,0 +1,87 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.count;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.getCode;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.getOllirMethod;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.optimize;
+
+public class ArrayShapeAnalysisTest {
+
+    private static String ollir;
+
+    @BeforeClass
+    public static void optimizeCode() {
+        ollir = TestUtils.optimize(getCode("arrays/Shapes.jmm"), optimize()).getOllirCode();
+    }
+
+    private static String getMethod(String header) {
+        return getOllirMethod(ollir, header);
+    }
+
+    /**
+     * The lengths of the arrays are their sizes, after which the arrays are never read and their allocations go away.
+     */
+    @Test
+    public void lengthsFolded() {
+        var method = getMethod("public static lengths");
+        assertTrue(method, method.contains("ret.i32 10.i32;"));
+        assertFalse(method, method.contains("new(array"));
+    }
+
+    @Test
+    public void constantAccessesFolded() {
+        var method = getMethod("public static constantAccesses");
+        assertTrue(method, method.contains("ret.i32 10.i32;"));
+    }
+
+    /**
+     * An array that is never read is not allocated, and the stores into it, which cannot throw, are removed with it.
+     */
+    @Test
+    public void deadAllocationRemoved() {
+        var method = getMethod("public static deadStores");
+        assertFalse(method, method.contains("new(array"));
+        assertFalse(method, method.contains("[0.i32]"));
+        assertFalse(method, method.contains("[2.i32]"));
+    }
+
+    /**
+     * A store with a negative index throws, so the array it stores to is still allocated.
+     */
+    @Test
+    public void negativeIndexKept() {
+        var method = getMethod("public static negativeStore");
+        assertTrue(method, method.contains("new(array, 3.i32)"));
+        assertTrue(method, method.contains("[-1.i32]"));
+    }
+
+    /**
+     * The elements of the arrays are calls, which still run although one array is never read and the length of the
+     * other is known.
+     */
+    @Test
+    public void impureElementsKept() {
+        var method = getMethod("public impureElements");
+        assertEquals(method, 2, count(method, "\"bump\""));
+        assertEquals(method, 2, count(method, "new(array"));
+        assertTrue(method, method.contains("arraylength("));
+    }
+
+    @Test
+    public void sameOutput() {
+        var code = getCode("arrays/Shapes.jmm");
+
+        var expected = TestUtils.backend(code).runWithFullOutput();
+        var output = TestUtils.backend(code, optimize()).runWithFullOutput();
+        assertEquals("10\n10\n7\n1\n2", output.getStdOut().trim().replace("\r\n", "\n"));
+        assertEquals(expected.getStdOut(), output.getStdOut());
+        assertTrue(output.getStdErr(), output.getStdErr().contains("ArrayIndexOutOfBoundsException"));
+    }
+}
@@ -0,0 +1,69 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.count;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.getCode;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.getOllirMethod;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.optimize;
+
+public class ConditionJumpsTest {
+
+    private static final Pattern BOOL_ASSIGN = Pattern.compile("\\.bool :=\\.bool");
+
+    /**
+     * With -o, the comparisons, conjunctions and negations of if and while conditions become jumps, without boolean
+     * temporaries.
+     */
+    @Test
+    public void conditionsBecomeJumps() {
+        var ollir = TestUtils.optimize(getCode("conditions/Conditions.jmm"), optimize()).getOllirCode();
+
+        var classify = getOllirMethod(ollir, "public static classify");
+        assertFalse(classify, BOOL_ASSIGN.matcher(classify).find());
+        assertFalse(classify, classify.contains("!.bool"));
+        assertEquals(classify, 2, count(classify, "goto else"));
+
+        var sum = getOllirMethod(ollir, "public static sum");
+        assertFalse(sum, BOOL_ASSIGN.matcher(sum).find());
+        assertTrue(sum, sum.contains("goto whileBody"));
+    }
+
+    /**
+     * A conjunction used as a value jumps to the assignment of false as soon as one operand is false.
+     */
+    @Test
+    public void conjunctionValue() {
+        var ollir = TestUtils.optimize(getCode("conditions/Conditions.jmm"), optimize()).getOllirCode();
+
+        var between = getOllirMethod(ollir, "public static between");
+        assertEquals(between, 2, BOOL_ASSIGN.matcher(between).results().count());
+        assertEquals(between, 2, count(between, "goto false"));
+    }
+
+    /**
+     * Without -o the conditions are computed and tested as they are.
+     */
+    @Test
+    public void unoptimizedConditionsAreTested() {
+        var ollir = TestUtils.optimize(getCode("conditions/Conditions.jmm")).getOllirCode();
+
+        var classify = getOllirMethod(ollir, "public static classify");
+        assertTrue(classify, BOOL_ASSIGN.matcher(classify).find());
+    }
+
+    @Test
+    public void sameOutput() {
+        var code = getCode("conditions/Conditions.jmm");
+
+        var expected = TestUtils.backend(code).run();
+        assertEquals("1\n0\n0\n1\n1\n0\n2\n3\n0\n2\n6\n0", expected.trim().replace("\r\n", "\n"));
+        assertEquals(expected, TestUtils.backend(code, optimize()).run());
+    }
+}
@@ -0,0 +1,65 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2024.ast.Kind;
+import pt.up.fe.comp2024.optimization.visitors.DeadCallElimination;
+import pt.up.fe.comp2024.optimization.visitors.MethodSummaryAnalysis;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.getCode;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.optimize;
+
+public class DeadCallEliminationTest {
+
+    private static List<String> getCalls(JmmNode method) {
+        return method.getDescendants(Kind.METHOD_CALL_EXPR).stream()
+                .map(call -> call.get("name"))
+                .toList();
+    }
+
+    private static JmmNode getMethod(JmmNode root, String name) {
+        return root.getDescendants(Kind.METHOD_DECL).stream()
+                .filter(method -> method.get("name").equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    /**
+     * Discarded static calls to methods without side effects are removed, an unbraced branch keeps an empty block, and
+     * a discarded call on this is kept because a subclass compiled separately may override the method.
+     */
+    @Test
+    public void removesOnlyStaticPureCalls() {
+        var result = TestUtils.analyse(getCode("summaries/DeadCalls.jmm"));
+        var table = (JmmSymbolTable) result.getSymbolTable();
+        var root = result.getRootNode();
+
+        new MethodSummaryAnalysis(table).visit(root);
+        var deadCallElimination = new DeadCallElimination(table);
+        deadCallElimination.visit(root);
+
+        assertTrue(deadCallElimination.changed);
+        var main = getMethod(root, "main");
+        assertEquals(List.of("prints", "prints", "run"), getCalls(main));
+        var ifStmt = main.getDescendants(Kind.IF_STMT).get(0);
+        assertTrue(Kind.BLOCK_STMT.check(ifStmt.getChild(1)));
+        assertEquals(List.of("get", "println"), getCalls(getMethod(root, "run")));
+    }
+
+    @Test
+    public void sameOutput() {
+        var code = getCode("summaries/DeadCalls.jmm");
+
+        var ollir = TestUtils.optimize(code, optimize()).getOllirCode();
+        assertTrue(ollir, ollir.contains("\"get\""));
+
+        var expected = TestUtils.backend(code).run();
+        assertEquals(expected, TestUtils.backend(code, optimize()).run());
+    }
+}
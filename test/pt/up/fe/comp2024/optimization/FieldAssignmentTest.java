@@ -0,0 +1,22 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.getCode;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.optimize;
+
+public class FieldAssignmentTest {
+
+    /**
+     * The value of a field assignment is computed before the putfield, which only takes a simple operand.
+     */
+    @Test
+    public void computedValues() {
+        var code = getCode("fields/FieldAssignments.jmm");
+
+        assertEquals("18", TestUtils.backend(code).run().trim());
+        assertEquals("18", TestUtils.backend(code, optimize()).run().trim());
+    }
+}
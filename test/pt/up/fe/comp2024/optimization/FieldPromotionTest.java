@@ -0,0 +1,82 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.count;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.getCode;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.getOllirMethod;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.optimize;
+
+public class FieldPromotionTest {
+
+    private static String ollir;
+
+    @BeforeClass
+    public static void optimizeCode() {
+        ollir = TestUtils.optimize(getCode("promotion/Promotion.jmm"), optimize()).getOllirCode();
+    }
+
+    private static String getMethod(String name) {
+        return getOllirMethod(ollir, "public " + name);
+    }
+
+    /**
+     * A field only read in the loop is loaded once before it and never stored.
+     */
+    @Test
+    public void readOnlyField() {
+        var method = getMethod("readOnly");
+        assertTrue(method, method.contains("limit_promoted"));
+        assertEquals(method, 1, count(method, "getfield("));
+        assertEquals(method, 1, count(method, "putfield("));
+    }
+
+    /**
+     * A field assigned in the loop is stored once, when the loop exits.
+     */
+    @Test
+    public void assignedFieldWrittenBack() {
+        var method = getMethod("writeBack");
+        assertTrue(method, method.contains("total_promoted"));
+
+        var loopEnd = method.lastIndexOf("goto whileBody");
+        assertEquals(method, 1, count(method.substring(loopEnd), "putfield(this.Promotion, total.i32, total_promoted"));
+        assertEquals(method, 2, count(method, "putfield("));
+    }
+
+    /**
+     * A field assigned in a loop that may throw keeps its stores, while the fields it only reads are still promoted.
+     */
+    @Test
+    public void assignedFieldInLoopThatMayThrow() {
+        var method = getMethod("mayThrow");
+        assertFalse(method, method.contains("total_promoted"));
+        assertTrue(method, method.contains("limit_promoted"));
+        assertTrue(method, method.contains("data_promoted"));
+    }
+
+    /**
+     * A subclass compiled separately may override the instance method called in the loop to use the field.
+     */
+    @Test
+    public void instanceCallKeepsField() {
+        var method = getMethod("instanceCall");
+        assertFalse(method, method.contains("_promoted"));
+    }
+
+    @Test
+    public void sameOutput() {
+        var code = getCode("promotion/Promotion.jmm");
+
+        var expected = TestUtils.backend(code).runWithFullOutput();
+        var output = TestUtils.backend(code, optimize()).runWithFullOutput();
+        assertEquals("30\n6\n6\n6", output.getStdOut().trim().replace("\r\n", "\n"));
+        assertEquals(expected.getStdOut(), output.getStdOut());
+        assertTrue(output.getStdErr(), output.getStdErr().contains("ArrayIndexOutOfBoundsException"));
+    }
+}
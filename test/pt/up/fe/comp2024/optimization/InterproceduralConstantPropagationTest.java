@@ -0,0 +1,64 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.getCode;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.optimize;
+
+public class InterproceduralConstantPropagationTest {
+
+    /**
+     * A constant argument that makes a division by zero must not crash the compiler, only the compiled program.
+     */
+    @Test
+    public void divisionByZeroThrowsAtRunTime() {
+        var code = getCode("interprocedural/DivisionByZero.jmm");
+
+        var output = TestUtils.backend(code, optimize()).runWithFullOutput();
+        assertEquals("2", output.getStdOut().trim());
+        assertTrue(output.getStdErr(), output.getStdErr().contains("ArithmeticException"));
+    }
+
+    /**
+     * Other classes of the package may call the method, so it is cloned instead of losing a parameter.
+     */
+    @Test
+    public void packagePrivateMethodKeepsSignature() {
+        var code = getCode("interprocedural/PackagePrivateKept.jmm");
+
+        var jasmin = TestUtils.backend(code, optimize()).getJasminCode();
+        assertTrue(jasmin, jasmin.contains(".method static scale(II)I"));
+    }
+
+    @Test
+    public void clonesAreCapped() {
+        var code = getCode("interprocedural/ManyClones.jmm");
+
+        var ollir = TestUtils.optimize(code, optimize()).getOllirCode();
+        var clones = Pattern.compile("\\.method static f\\d+_\\d+\\(").matcher(ollir).results().count();
+        assertTrue(ollir, clones > 0 && clones <= 8);
+
+        var expected = TestUtils.backend(code).run();
+        assertEquals(expected, TestUtils.backend(code, optimize()).run());
+    }
+
+    /**
+     * Instance methods may be overridden, so neither their return values nor their arguments are propagated.
+     */
+    @Test
+    public void instanceMethodsNotPropagated() {
+        var code = getCode("interprocedural/InstanceNotPropagated.jmm");
+
+        var ollir = TestUtils.optimize(code, optimize()).getOllirCode();
+        assertTrue(ollir, ollir.contains("\"one\""));
+        assertFalse(ollir, ollir.contains("\"scale_0\""));
+
+        assertEquals("3\n2", TestUtils.backend(code, optimize()).run().trim().replace("\r\n", "\n"));
+    }
+}
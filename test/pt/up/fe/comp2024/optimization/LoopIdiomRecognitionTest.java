@@ -0,0 +1,37 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.getCode;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.optimize;
+
+public class LoopIdiomRecognitionTest {
+
+    /**
+     * A zero fill of a fresh array starting at an index that is never negative has no effect besides the index.
+     */
+    @Test
+    public void zeroFillRemoved() {
+        var code = getCode("idioms/ZeroFillRemoved.jmm");
+
+        var ollir = TestUtils.optimize(code, optimize()).getOllirCode();
+        assertFalse(ollir, ollir.contains("\"fill\""));
+        assertEquals("4", TestUtils.backend(code, optimize()).run().trim());
+    }
+
+    /**
+     * The index may be negative, so the loop must still throw.
+     */
+    @Test
+    public void zeroFillWithNegativeIndexThrows() {
+        var code = getCode("idioms/ZeroFillNegativeIndex.jmm");
+
+        var output = TestUtils.backend(code, optimize()).runWithFullOutput();
+        assertTrue(output.getStdErr(), output.getStdErr().contains("ArrayIndexOutOfBoundsException"));
+        assertEquals("", output.getStdOut().trim());
+    }
+}
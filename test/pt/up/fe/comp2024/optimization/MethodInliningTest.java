@@ -0,0 +1,45 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.getCode;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.optimize;
+
+public class MethodInliningTest {
+
+    /**
+     * A discarded call whose body can throw must still throw once inlined, while a discarded pure call is dropped.
+     */
+    @Test
+    public void inlinedAccessStillThrows() {
+        var code = getCode("inlining/InlinedAccessThrows.jmm");
+
+        var ollir = TestUtils.optimize(code, optimize()).getOllirCode();
+        assertFalse(ollir, ollir.contains("\"square\""));
+        assertFalse(ollir, ollir.contains("\"get\""));
+
+        var output = TestUtils.backend(code, optimize()).runWithFullOutput();
+        assertNotEquals(0, output.getReturnValue());
+        assertEquals("16", output.getStdOut().trim());
+        assertTrue(output.getStdErr(), output.getStdErr().contains("ArrayIndexOutOfBoundsException"));
+    }
+
+    /**
+     * Instance methods may be overridden by a subclass, so calls to them are kept.
+     */
+    @Test
+    public void instanceMethodNotInlined() {
+        var code = getCode("inlining/InstanceNotInlined.jmm");
+
+        var ollir = TestUtils.optimize(code, optimize()).getOllirCode();
+        assertTrue(ollir, ollir.contains("\"next\""));
+
+        var output = TestUtils.backend(code, optimize()).runWithFullOutput();
+        assertEquals("2", output.getStdOut().trim());
+    }
+}
@@ -0,0 +1,77 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2024.optimization.visitors.MethodSummaryAnalysis;
+import pt.up.fe.comp2024.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2024.symboltable.MethodSummary;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.getCode;
+
+public class MethodSummaryAnalysisTest {
+
+    private static JmmSymbolTable table;
+
+    @BeforeClass
+    public static void analyse() {
+        var result = TestUtils.analyse(getCode("summaries/Summaries.jmm"));
+        table = (JmmSymbolTable) result.getSymbolTable();
+        new MethodSummaryAnalysis(table).visit(result.getRootNode());
+    }
+
+    private static MethodSummary getSummary(String method) {
+        return table.getMethodSummary(method).orElseThrow();
+    }
+
+    @Test
+    public void pureMethods() {
+        assertTrue(getSummary("pure").isPure());
+        // the effects of static calls through the name of the class are the ones of the called method
+        assertTrue(getSummary("callsPure").isPure());
+    }
+
+    @Test
+    public void localEffects() {
+        assertTrue(getSummary("divides").mayThrow());
+        assertFalse(getSummary("divides").hasNoSideEffects());
+
+        assertTrue(getSummary("prints").callsImported());
+        assertTrue(getSummary("loops").mayNotTerminate());
+        assertTrue(getSummary("recurses").mayNotTerminate());
+
+        assertTrue(getSummary("writesField").writesFields());
+        assertTrue(getSummary("writesArray").writesArrays());
+        assertTrue(getSummary("writesArray").mayThrow());
+    }
+
+    @Test
+    public void fieldReads() {
+        var readsField = getSummary("readsField");
+        assertTrue(readsField.readsFields());
+        assertTrue(readsField.hasNoSideEffects());
+        assertFalse(readsField.isPure());
+
+        var callsStatic = getSummary("callsStatic");
+        assertTrue(callsStatic.readsFields());
+        assertTrue(callsStatic.hasNoSideEffects());
+    }
+
+    @Test
+    public void calleeEffects() {
+        assertTrue(getSummary("callsPrints").callsImported());
+    }
+
+    /**
+     * A subclass compiled separately may override the instance method, so the effects of the call are unknown even if
+     * the method of the class has none.
+     */
+    @Test
+    public void instanceCallsAreUnknown() {
+        var callsInstance = getSummary("callsInstance");
+        assertTrue(callsInstance.callsImported());
+        assertFalse(callsInstance.hasNoSideEffects());
+    }
+}
@@ -0,0 +1,49 @@
+package pt.up.fe.comp2024.optimization;
+
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Helpers for the tests of the optimizations, whose programs are resources under this package.
+ */
+class OptimizationTestUtils {
+
+    private static final String RESOURCES = "pt/up/fe/comp2024/optimization/";
+
+    /**
+     * @return the configuration that turns on the optimizations of -o
+     */
+    static Map<String, String> optimize() {
+        return TestUtils.toConfig("optimize", "true");
+    }
+
+    /**
+     * @param resource the path of the program, relative to the resources of the optimization tests
+     */
+    static String getCode(String resource) {
+        return SpecsIo.getResource(RESOURCES + resource);
+    }
+
+    /**
+     * @param header the start of the declaration of the method, e.g. "public static run"
+     * @return the OLLIR code of the method with the given header
+     */
+    static String getOllirMethod(String ollir, String header) {
+        var method = Pattern.compile("\\.method " + Pattern.quote(header) + "\\(.*?\\n}", Pattern.DOTALL)
+                .matcher(ollir);
+        assertTrue(ollir, method.find());
+        return method.group();
+    }
+
+    /**
+     * @return the number of times the text appears in the code
+     */
+    static int count(String code, String text) {
+        return code.split(Pattern.quote(text), -1).length - 1;
+    }
+}
@@ -0,0 +1,41 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.getCode;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.getOllirMethod;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.optimize;
+
+public class TailRecursionTest {
+
+    /**
+     * A million nested calls overflow the stack, but not once they are jumps. The parameters that swap their values
+     * are all computed before any is assigned.
+     */
+    @Test
+    public void deepRecursionBecomesLoop() {
+        var code = getCode("tailcalls/TailCalls.jmm");
+
+        var unoptimized = TestUtils.backend(code).runWithFullOutput();
+        assertTrue(unoptimized.getStdErr(), unoptimized.getStdErr().contains("StackOverflowError"));
+
+        var output = TestUtils.backend(code, optimize()).runWithFullOutput();
+        assertEquals(output.getStdErr(), "1000000\n21\n0", output.getStdOut().trim().replace("\r\n", "\n"));
+    }
+
+    /**
+     * A subclass compiled separately may override the instance method, so its call on this is kept.
+     */
+    @Test
+    public void instanceMethodKeepsCall() {
+        var ollir = TestUtils.optimize(getCode("tailcalls/TailCalls.jmm"), optimize()).getOllirCode();
+
+        assertTrue(ollir, getOllirMethod(ollir, "public down").contains("invokevirtual(this.TailCalls, \"down\""));
+        assertFalse(ollir, getOllirMethod(ollir, "public static count").contains("invoke"));
+        assertFalse(ollir, getOllirMethod(ollir, "public static swap").contains("invoke"));
+    }
+}
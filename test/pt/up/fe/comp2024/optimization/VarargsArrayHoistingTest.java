@@ -0,0 +1,40 @@
+package pt.up.fe.comp2024.optimization;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.getCode;
+import static pt.up.fe.comp2024.optimization.OptimizationTestUtils.optimize;
+
+public class VarargsArrayHoistingTest {
+
+    /**
+     * The static calls with the same constant arguments share one array built before the loop, while the method that
+     * writes to its array and the instance method, which an override could make write to it, get a new array in every
+     * call.
+     */
+    @Test
+    public void hoistsOnlyReadOnlyStaticCalls() {
+        var code = getCode("varargs/Varargs.jmm");
+
+        var ollir = TestUtils.optimize(code, optimize()).getOllirCode();
+        assertTrue(ollir, ollir.contains("invokestatic(Varargs, \"sum\", varargs_sum.array.i32)"));
+        assertTrue(ollir, ollir.contains("invokestatic(Varargs, \"sum\", varargs_sum1.array.i32)"));
+        assertEquals(ollir, 2, Pattern.compile("varargs_\\w+\\.array\\.i32 :=").matcher(ollir).results().count());
+        assertTrue(ollir, Pattern.compile("invokestatic\\(Varargs, \"clobber\", tmparray").matcher(ollir).find());
+        assertTrue(ollir, Pattern.compile("invokevirtual\\(v\\.Varargs, \"count\", tmparray").matcher(ollir).find());
+    }
+
+    @Test
+    public void sameOutput() {
+        var code = getCode("varargs/Varargs.jmm");
+
+        var expected = TestUtils.backend(code).run();
+        assertEquals("105\n105\n105\n369", expected.trim().replace("\r\n", "\n"));
+        assertEquals(expected, TestUtils.backend(code, optimize()).run());
+    }
+}
@@ -0,0 +1,90 @@
+package pt.up.fe.comp2024.parser;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.ast.AstAssert;
+
+import java.util.HashMap;
+import java.util.Optional;
+
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalParserTest {
+
+    private static final String CODE = """
+            import io;
+            class Edited {
+                int field;
+                public int first(int a) {
+                    int b;
+                    // the value of b
+                    b = a + 1;
+                    if (b < 10) {
+                        io.println(b);
+                    } else {
+                        b = b * 2;
+                    }
+                    return b;
+                }
+                public int second(int[] values) {
+                    return values.length;
+                }
+                public static void main(String[] args) {
+                }
+            }
+            """;
+
+    private final JmmParserImpl parser = new JmmParserImpl();
+
+    /**
+     * Reparses the edit of the code and checks that it gives the same AST as parsing the whole edited code, positions
+     * included.
+     *
+     * @return the AST of the reparse, or empty if the edit could not be reparsed on its own
+     */
+    private Optional<JmmNode> reparse(String edited) {
+        assertNotEquals("the edit must change the code", CODE, edited);
+
+        var config = new HashMap<String, String>();
+        var previousRoot = parser.parse(CODE, config).getRootNode();
+        var expected = parser.parse(edited, config).getRootNode();
+        assertNotNull(expected);
+
+        var result = parser.reparse(CODE, previousRoot, edited, config);
+        result.ifPresent(reparsed -> AstAssert.assertSameTree(expected, reparsed.getRootNode()));
+
+        return result.map(JmmParserResult::getRootNode);
+    }
+
+    @Test
+    public void editInsideStatement() {
+        assertTrue(reparse(CODE.replace("b = a + 1;", "b = a + 123;")).isPresent());
+        assertTrue(reparse(CODE.replace("b = a + 1;", "b = a;")).isPresent());
+    }
+
+    @Test
+    public void editAcrossLines() {
+        // the lines after the edit move up
+        var joined = CODE.replace("} else {\n            b = b * 2;\n        }", "} else { b = b * 2; }");
+        assertTrue(reparse(joined).isPresent());
+
+        // and down
+        assertTrue(reparse(CODE.replace("b = a + 1;", "b = a\n            + 1\n            + 2;")).isPresent());
+    }
+
+    @Test
+    public void statementBecomesDeclaration() {
+        // a declaration is not a statement, so the method is parsed again
+        assertTrue(reparse(CODE.replace("b = a + 1;", "int c;")).isPresent());
+        assertTrue(reparse(CODE.replace("b = a + 1;", "int[] c;\n        b = 1;")).isPresent());
+    }
+
+    @Test
+    public void editInsideComment() {
+        assertTrue(reparse(CODE.replace("// the value of b", "// the new value of b")).isPresent());
+        assertTrue(reparse(CODE.replace("// the value of b", "// the value\n        // of b")).isPresent());
+    }
+}
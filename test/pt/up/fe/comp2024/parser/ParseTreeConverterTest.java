@@ -0,0 +1,128 @@
+package pt.up.fe.comp2024.parser;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2024.JavammLexer;
+import pt.up.fe.comp2024.JavammParser;
+import pt.up.fe.comp2024.ast.AstAssert;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class ParseTreeConverterTest {
+
+    private static final String CODE = """
+            import io;
+            import a.b.Other;
+            class Types extends Other {
+                int number;
+                int[] numbers;
+                boolean flag;
+                String text;
+                Other other;
+                public int sum(int... values) {
+                    int total;
+                    int i;
+                    total = 0;
+                    i = 0;
+                    while (i < values.length) {
+                        total = total + values[i];
+                        i = i + 1;
+                    }
+                    return total;
+                }
+                public Other get(int[] a, boolean b, Other c, String d) {
+                    int[] copy;
+                    copy = [1, 2, 3];
+                    if (b && !(a.length < 2)) {
+                        copy = new int[a.length];
+                    } else {
+                        io.println(d);
+                    }
+                    return new Types();
+                }
+                public static void main(String[] args) {
+                }
+            }
+            """;
+
+    /**
+     * @return the result of parsing the code the way the library does, with the LL prediction and the conversion of
+     * the library
+     */
+    private static JmmParserResult libraryParse(String code) {
+        var lexer = new JavammLexer(new ANTLRInputStream(code));
+        var parser = new JavammParser(new CommonTokenStream(lexer));
+        return AntlrParser.parse(lexer, parser, "program", new HashMap<>());
+    }
+
+    @Test
+    public void sameTreeAsLibrary() {
+        var expected = libraryParse(CODE).getRootNode();
+        assertNotNull(expected);
+
+        var result = new JmmParserImpl().parse(CODE, new HashMap<>());
+        assertNotNull(result.getReports().toString(), result.getRootNode());
+
+        AstAssert.assertSameTree(expected, result.getRootNode());
+    }
+
+    @Test
+    public void sameErrorsAfterBailOut() {
+        var wrongCodes = new String[]{
+                CODE.replace("total = 0;", "total = ;"),
+                CODE.replace("int[] copy;", "int[] copy"),
+                CODE.replace("int... values", "int values..."),
+                CODE.replace("io.println(d);", "io.println(d) }"),
+                CODE.replace("class Types", "class Types Other"),
+        };
+
+        for (var code : wrongCodes) {
+            assertBailsOut(code);
+
+            var expected = libraryParse(code);
+            var result = new JmmParserImpl().parse(code, new HashMap<>());
+
+            assertNull(result.getRootNode());
+            assertFalse(code, expected.getReports().isEmpty());
+            assertEquals(code, expected.getReports().size(), result.getReports().size());
+            for (int i = 0; i < expected.getReports().size(); i++) {
+                var expectedReport = expected.getReports().get(i);
+                var report = result.getReports().get(i);
+                assertEquals(expectedReport.getType(), report.getType());
+                assertEquals(expectedReport.getStage(), report.getStage());
+                assertEquals(expectedReport.getLine(), report.getLine());
+                assertEquals(expectedReport.getColumn(), report.getColumn());
+                assertEquals(expectedReport.getMessage(), report.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Checks that the SLL parse gives up on the code, so the errors are the ones of the LL parse that follows.
+     */
+    private static void assertBailsOut(String code) {
+        var parser = new JavammParser(new CommonTokenStream(new JavammLexer(new ANTLRInputStream(code))));
+        parser.removeErrorListeners();
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.setErrorHandler(new BailErrorStrategy());
+
+        try {
+            parser.program();
+            fail("Expected the SLL parse to give up on:\n" + code);
+        } catch (ParseCancellationException e) {
+            // the parse falls back to LL
+        }
+    }
+}